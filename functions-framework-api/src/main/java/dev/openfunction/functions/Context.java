@@ -20,6 +20,7 @@ import io.cloudevents.CloudEvent;
 import io.dapr.client.DaprClient;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * An interface for event function context.
@@ -35,6 +36,19 @@ public interface Context {
     @Deprecated
     Error send(String outputName, String data);
 
+    /**
+     * sendAsync sends data to a specified output target without blocking the function.
+     * The data may be held back for a short while to be sent in a batch with other data for the same target.
+     *
+     * @param outputName output target name
+     * @param data       Data String
+     * @return a future completed when the data is sent, or completed exceptionally with the error
+     */
+    default CompletableFuture<Void> sendAsync(String outputName, String data) {
+        Error error = send(outputName, data);
+        return error == null ? CompletableFuture.completedFuture(null) : CompletableFuture.failedFuture(error);
+    }
+
     /**
      * getHttpRequest returns the Http request.
      *
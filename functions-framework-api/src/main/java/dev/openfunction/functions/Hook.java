@@ -41,6 +41,27 @@ public interface Hook {
      */
     Hook init();
 
+    /**
+     * isStateless tells whether the hook keeps no state between calls. The instance of a stateless hook
+     * executes every call, `init` and `needToTracing` are only called once when the hook is loaded.
+     *
+     * @return true if the hook is stateless
+     */
+    default boolean isStateless() {
+        return false;
+    }
+
+    /**
+     * isAsync tells whether the hook can run concurrently with the invocation. Async pre hooks run in parallel
+     * with the other pre hooks, the function starts once all of them finished. Async post hooks run after the
+     * response is completed, so they must not use the http request or response.
+     *
+     * @return true if the hook is async
+     */
+    default boolean isAsync() {
+        return false;
+    }
+
     /**
      * execute executes the hook.
      *
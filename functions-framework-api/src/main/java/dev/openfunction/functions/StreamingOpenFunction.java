@@ -0,0 +1,44 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package dev.openfunction.functions;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An {@link OpenFunction} that reads the incoming event as a stream, so large http request bodies do not
+ * need to be loaded into memory. Events that only exist as a string, e.g. dapr events, are passed in as
+ * their UTF-8 encoded bytes.
+ */
+public interface StreamingOpenFunction extends OpenFunction {
+    /**
+     * Called to service an incoming event. The stream is only valid until the method returns.
+     *
+     * @param context context
+     * @param payload incoming event
+     * @return Out
+     * @throws Exception Exception
+     */
+    Out accept(Context context, InputStream payload) throws Exception;
+
+    @Override
+    default Out accept(Context context, String payload) throws Exception {
+        byte[] bytes = payload == null ? new byte[0] : payload.getBytes(StandardCharsets.UTF_8);
+        return accept(context, new ByteArrayInputStream(bytes));
+    }
+}
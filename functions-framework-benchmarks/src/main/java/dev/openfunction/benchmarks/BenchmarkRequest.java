@@ -0,0 +1,192 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package dev.openfunction.benchmarks;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * An in-memory {@link HttpServletRequest} that can be replayed against a servlet many times.
+ * Only the methods used by the invoker are implemented, everything else throws
+ * {@link UnsupportedOperationException}.
+ */
+public class BenchmarkRequest extends HttpServletRequestWrapper {
+    private final String method;
+    private final String path;
+    private final Map<String, List<String>> headers;
+    private final BodyInputStream body;
+
+    public BenchmarkRequest(String method, String path, Map<String, String> headers, byte[] body) {
+        super(unsupported());
+        this.method = method;
+        this.path = path;
+        this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String key : headers.keySet()) {
+            this.headers.put(key, Collections.singletonList(headers.get(key)));
+        }
+        this.body = new BodyInputStream(body);
+    }
+
+    /**
+     * Rewinds the body so that the request can be serviced again.
+     */
+    public BenchmarkRequest reset() {
+        body.rewind();
+        return this;
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        return new StringBuffer("http://localhost:8080").append(path);
+    }
+
+    @Override
+    public String getRequestURI() {
+        return path;
+    }
+
+    @Override
+    public String getQueryString() {
+        return null;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    @Override
+    public int getContentLength() {
+        return body.length();
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return body.length();
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return null;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return body;
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = headers.get(name);
+        return Collections.enumeration(values == null ? Collections.emptyList() : values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(headers.keySet());
+    }
+
+    private static HttpServletRequest unsupported() {
+        return (HttpServletRequest) Proxy.newProxyInstance(BenchmarkRequest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class},
+                (proxy, m, args) -> {
+                    throw new UnsupportedOperationException(m.getName());
+                });
+    }
+
+    private static class BodyInputStream extends ServletInputStream {
+        private final byte[] data;
+        private int pos;
+
+        private BodyInputStream(byte[] data) {
+            this.data = data;
+        }
+
+        void rewind() {
+            pos = 0;
+        }
+
+        int length() {
+            return data.length;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return pos >= data.length;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("setReadListener");
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= data.length) {
+                return -1;
+            }
+            int n = Math.min(len, data.length - pos);
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return data.length - pos;
+        }
+    }
+}
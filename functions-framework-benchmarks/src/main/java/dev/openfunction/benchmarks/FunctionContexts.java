@@ -0,0 +1,49 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package dev.openfunction.benchmarks;
+
+import dev.openfunction.benchmarks.functions.NoopHook;
+
+/**
+ * Builds the FUNC_CONTEXT documents used by the benchmarks.
+ */
+public final class FunctionContexts {
+    private FunctionContexts() {
+    }
+
+    public static String http(boolean hooks, boolean tracing) {
+        return http(hooks, tracing, "function");
+    }
+
+    public static String http(boolean hooks, boolean tracing, String granularity) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"name\":\"benchmark\",\"version\":\"v1.0.0\",");
+        sb.append("\"triggers\":{\"http\":{\"port\":\"8080\"}}");
+        if (hooks) {
+            String hook = NoopHook.class.getName();
+            sb.append(",\"preHooks\":[\"").append(hook).append("\"]");
+            sb.append(",\"postHooks\":[\"").append(hook).append("\"]");
+        }
+        if (tracing) {
+            sb.append(",\"tracing\":{\"enabled\":true,\"provider\":{\"name\":\"opentelemetry\"}");
+            sb.append(",\"granularity\":\"").append(granularity).append("\"}");
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package dev.openfunction.benchmarks.functions;
+
+import dev.openfunction.functions.Context;
+import dev.openfunction.functions.Hook;
+
+import java.util.Map;
+
+/**
+ * A hook that does nothing, used to measure the cost the invoker adds around hooks.
+ */
+public class NoopHook implements Hook {
+    private long seq;
+
+    @Override
+    public String name() {
+        return "noop";
+    }
+
+    @Override
+    public String version() {
+        return "v1.0.0";
+    }
+
+    @Override
+    public Hook init() {
+        return this;
+    }
+
+    @Override
+    public Error execute(Context ctx) {
+        seq++;
+        return null;
+    }
+
+    @Override
+    public Boolean needToTracing() {
+        return true;
+    }
+
+    @Override
+    public Map<String, String> tagsAddToTracing() {
+        return null;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package dev.openfunction.invoker;
+
+import dev.openfunction.benchmarks.TreeJsonEventFormat;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.cloudevents.core.format.EventFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link JsonEventFormat} with the tree model based implementation it replaced,
+ * for the events built by {@code Context.packageAsCloudevent}.
+ * <p>
+ * Run with {@code -prof gc} to also report the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonEventFormatBenchmark {
+
+    @Param({"streaming", "tree"})
+    public String format;
+
+    @Param({"64", "4096"})
+    public int payloadSize;
+
+    private EventFormat eventFormat;
+    private CloudEvent event;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        eventFormat = "tree".equals(format) ? new TreeJsonEventFormat() : new JsonEventFormat();
+
+        char[] payload = new char[payloadSize];
+        Arrays.fill(payload, 'x');
+        event = CloudEventBuilder.v1()
+                .withId("5c1bc8f4-1d0a-4e6e-9cf0-4c4b4f6a9f0b")
+                .withType("dapr.invoke")
+                .withSource(URI.create("openfunction/invokeBinding"))
+                .withTime(OffsetDateTime.parse("2023-06-14T10:15:30+08:00"))
+                .withDataContentType(JsonEventFormat.CONTENT_TYPE)
+                .withExtension("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01")
+                .withData(new String(payload).getBytes(StandardCharsets.UTF_8))
+                .build();
+        serialized = eventFormat.serialize(event);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return eventFormat.serialize(event);
+    }
+
+    @Benchmark
+    public CloudEvent deserialize() {
+        return eventFormat.deserialize(serialized);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package dev.openfunction.invoker.context;
+
+import dev.openfunction.benchmarks.BenchmarkRequest;
+import dev.openfunction.benchmarks.FunctionContexts;
+import dev.openfunction.benchmarks.functions.HelloOpenFunction;
+import dev.openfunction.functions.OpenFunction;
+import dev.openfunction.functions.Out;
+import dev.openfunction.invoker.http.HttpRequestImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what tracing adds to an invocation: the request span, the context span, the function span
+ * and, with hooks, a span per hook, without the cost of the servlet around them.
+ * <p>
+ * Compare {@code tracing=false} with {@code tracing=true} and run with {@code -prof gc} to see the
+ * allocations per invocation. With {@code granularity=request} only the request span is created.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TracingBenchmark {
+
+    private static final String PAYLOAD = "{\"message\":\"hello, world\"}";
+
+    @Param({"false", "true"})
+    public boolean hooks;
+
+    @Param({"false", "true"})
+    public boolean tracing;
+
+    @Param({"function", "request"})
+    public String granularity;
+
+    private RuntimeContext runtimeContext;
+    private OpenFunction function;
+    private BenchmarkRequest request;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        runtimeContext = new RuntimeContext(FunctionContexts.http(hooks, tracing, granularity),
+                TracingBenchmark.class.getClassLoader());
+        function = new HelloOpenFunction();
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+        request = new BenchmarkRequest("POST", "/", headers, PAYLOAD.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Out invoke() throws Exception {
+        HttpRequestImpl reqImpl = new HttpRequestImpl(request);
+        UserContext userContext = new UserContext(runtimeContext, null);
+        runtimeContext.executeWithTracing(reqImpl, () -> {
+            userContext.executeFunction(function, PAYLOAD);
+            return null;
+        });
+        return userContext.getOut();
+    }
+}
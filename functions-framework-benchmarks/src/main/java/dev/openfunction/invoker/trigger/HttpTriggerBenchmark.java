@@ -0,0 +1,103 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package dev.openfunction.invoker.trigger;
+
+import dev.openfunction.benchmarks.BenchmarkRequest;
+import dev.openfunction.benchmarks.BenchmarkResponse;
+import dev.openfunction.benchmarks.FunctionContexts;
+import dev.openfunction.benchmarks.functions.HelloCloudEventFunction;
+import dev.openfunction.benchmarks.functions.HelloHttpFunction;
+import dev.openfunction.benchmarks.functions.HelloOpenFunction;
+import dev.openfunction.invoker.context.RuntimeContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the full {@link HttpTrigger.OpenFunctionServlet#service} path, from the servlet request
+ * to the flushed response, for every function type the http trigger supports.
+ * <p>
+ * Run with {@code -prof gc} to also report the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpTriggerBenchmark {
+
+    private static final byte[] PAYLOAD = "{\"message\":\"hello, world\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"http", "cloudevent", "openfunction"})
+    public String function;
+
+    @Param({"false", "true"})
+    public boolean hooks;
+
+    @Param({"false", "true"})
+    public boolean tracing;
+
+    private HttpTrigger.OpenFunctionServlet servlet;
+    private BenchmarkRequest request;
+    private BenchmarkResponse response;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        RuntimeContext runtimeContext = new RuntimeContext(FunctionContexts.http(hooks, tracing),
+                HttpTriggerBenchmark.class.getClassLoader());
+
+        Object target;
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+        switch (function) {
+            case "http":
+                target = new HelloHttpFunction();
+                break;
+            case "cloudevent":
+                target = new HelloCloudEventFunction();
+                headers.put("ce-specversion", "1.0");
+                headers.put("ce-id", "5c1bc8f4-1d0a-4e6e-9cf0-4c4b4f6a9f0b");
+                headers.put("ce-type", "dev.openfunction.benchmark");
+                headers.put("ce-source", "/benchmark");
+                break;
+            case "openfunction":
+                target = new HelloOpenFunction();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown function " + function);
+        }
+
+        HttpTrigger trigger = new HttpTrigger(runtimeContext, new Class<?>[]{target.getClass()});
+        servlet = trigger.new OpenFunctionServlet(target);
+        request = new BenchmarkRequest("POST", "/", headers, PAYLOAD);
+        response = new BenchmarkResponse();
+    }
+
+    @Benchmark
+    public int service() {
+        request.reset();
+        response.reset();
+        servlet.service(request, response);
+        return response.getStatus();
+    }
+}
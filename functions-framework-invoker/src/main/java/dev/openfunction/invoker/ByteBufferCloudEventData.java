@@ -0,0 +1,110 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package dev.openfunction.invoker;
+
+import io.cloudevents.CloudEventData;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A {@link CloudEventData} backed by a range of an existing byte array, so the data of an event can be
+ * handed to the function without copying it out of the buffer the event was read from.
+ * {@link #asByteBuffer()} never copies, {@link #toBytes()} only copies once and only if the range does not
+ * cover the whole array.
+ */
+public class ByteBufferCloudEventData implements CloudEventData {
+    private final byte[] array;
+    private final int offset;
+    private final int length;
+
+    private byte[] bytes;
+
+    private ByteBufferCloudEventData(byte[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+        if (offset == 0 && length == array.length) {
+            this.bytes = array;
+        }
+    }
+
+    public static ByteBufferCloudEventData wrap(byte[] array) {
+        return new ByteBufferCloudEventData(array, 0, array.length);
+    }
+
+    public static ByteBufferCloudEventData wrap(byte[] array, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > array.length) {
+            throw new IndexOutOfBoundsException("range [" + offset + ", " + (offset + length) + ") out of bounds for length " + array.length);
+        }
+        return new ByteBufferCloudEventData(array, offset, length);
+    }
+
+    /**
+     * @return a read only view of the data, sharing the backing array
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(array, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    byte[] array() {
+        return array;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    int length() {
+        return length;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        if (bytes == null) {
+            bytes = Arrays.copyOfRange(array, offset, offset + length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ByteBufferCloudEventData)) {
+            return false;
+        }
+        ByteBufferCloudEventData that = (ByteBufferCloudEventData) o;
+        return Arrays.equals(array, offset, offset + length, that.array, that.offset, that.offset + that.length);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = offset; i < offset + length; i++) {
+            result = 31 * result + array[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufferCloudEventData{length=" + length + "}";
+    }
+}
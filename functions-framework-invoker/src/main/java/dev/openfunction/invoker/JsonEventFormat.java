@@ -14,16 +14,17 @@ See the License for the specific language governing permissions and
 limitations under the License.
 */
 
+
 package dev.openfunction.invoker;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.cloudevents.CloudEvent;
 import io.cloudevents.CloudEventData;
 import io.cloudevents.SpecVersion;
-import io.cloudevents.core.data.BytesCloudEventData;
 import io.cloudevents.core.format.EventDeserializationException;
 import io.cloudevents.core.format.EventFormat;
 import io.cloudevents.core.format.EventSerializationException;
@@ -32,13 +33,16 @@ import io.cloudevents.core.v1.CloudEventV1;
 import io.cloudevents.rw.CloudEventDataMapper;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 public class JsonEventFormat implements EventFormat {
 
@@ -54,128 +58,286 @@ public class JsonEventFormat implements EventFormat {
     public final static String DATASCHEMA = "dataschema";
     public final static String SUBJECT = "subject";
     public final static String DATA = "data";
+    public final static String DATA_BASE64 = "data_base64";
     public final static String EXTENSIONS = "extensions";
     public final static String TRACEPARENT = "traceparent";
     public final static String TRACEID = "traceid";
 
+    /**
+     * ObjectMapper is thread safe and expensive to create, so all events share one.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * The top level fields of a serialized event.
+     */
+    private static final Set<String> ReservedNames = Set.of(SPECVERSION, ID, TYPE, SOURCE, SCHEMAURL, DATACONTENTTYPE,
+            SUBJECT, DATASCHEMA, TIME, DATA, DATA_BASE64, EXTENSIONS);
+
     @Override
     public byte[] serialize(@NotNull CloudEvent event) throws EventSerializationException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        ObjectNode root = objectMapper.createObjectNode();
-        root.set(SPECVERSION, objectMapper.valueToTree(event.getSpecVersion().toString()));
-        root.set(ID, objectMapper.valueToTree(event.getId()));
-        root.set(TYPE, objectMapper.valueToTree(event.getType()));
-        root.set(SOURCE, objectMapper.valueToTree(event.getSource()));
-        root.set(SCHEMAURL, objectMapper.valueToTree(event.getDataSchema()));
-        root.set(DATACONTENTTYPE, objectMapper.valueToTree(event.getDataContentType()));
-        root.set(SUBJECT, objectMapper.valueToTree(event.getSubject()));
-        root.set(DATASCHEMA, objectMapper.valueToTree(event.getDataSchema()));
-
-        if (event.getTime() != null) {
-            root.set(TIME, objectMapper.valueToTree(event.getTime().format(DateTimeFormatter.ISO_DATE_TIME)));
+        // The generator writes straight into the buffer, no tree is built.
+        ByteArrayBuilder buffer = new ByteArrayBuilder();
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField(SPECVERSION, event.getSpecVersion().toString());
+            generator.writeStringField(ID, event.getId());
+            generator.writeStringField(TYPE, event.getType());
+            writeStringField(generator, SOURCE, event.getSource());
+            writeStringField(generator, SCHEMAURL, event.getDataSchema());
+            generator.writeStringField(DATACONTENTTYPE, event.getDataContentType());
+            generator.writeStringField(SUBJECT, event.getSubject());
+            writeStringField(generator, DATASCHEMA, event.getDataSchema());
+
+            if (event.getTime() != null) {
+                generator.writeStringField(TIME, event.getTime().format(DateTimeFormatter.ISO_DATE_TIME));
+            }
+
+            if (event.getData() != null) {
+                writeData(generator, event.getDataContentType(), event.getData());
+            }
+
+            Object traceparentValue = event.getExtension(TRACEPARENT);
+            String traceparent = traceparentValue == null ? null : traceparentValue.toString();
+            boolean writeTraceId = traceparent != null && !Objects.equals(traceparent, "");
+            for (String key : event.getExtensionNames()) {
+                // An extension named like a field written here stays in the extensions object only,
+                // a JSON object must not hold the same key twice.
+                if (ReservedNames.contains(key) || (writeTraceId && Objects.equals(key, TRACEID))) {
+                    continue;
+                }
+                generator.writeFieldName(key);
+                generator.writeObject(event.getExtension(key));
+            }
+
+            generator.writeObjectFieldStart(EXTENSIONS);
+            for (String key : event.getExtensionNames()) {
+                generator.writeFieldName(key);
+                generator.writeObject(event.getExtension(key));
+            }
+            generator.writeEndObject();
+
+            if (writeTraceId) {
+                generator.writeStringField(TRACEID, traceparent);
+            }
+
+            generator.writeEndObject();
+            generator.flush();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new EventSerializationException(e);
+        } finally {
+            buffer.release();
         }
+    }
 
-        if (event.getData() != null) {
-            root.set(DATA, objectMapper.valueToTree(new String(event.getData().toBytes())));
+    private static void writeStringField(JsonGenerator generator, String name, URI value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(name);
+        } else {
+            generator.writeStringField(name, value.toString());
         }
+    }
 
-        ObjectNode extensions = objectMapper.createObjectNode();
-        for (String key : event.getExtensionNames()) {
-            root.set(key, objectMapper.valueToTree(event.getExtension(key)));
-            extensions.set(key, objectMapper.valueToTree(event.getExtension(key)));
+    /**
+     * Writes textual data as the {@code data} string and any other data as {@code data_base64},
+     * both straight from the bytes of the data.
+     */
+    private static void writeData(JsonGenerator generator, String contentType, CloudEventData data) throws IOException {
+        byte[] array;
+        int offset;
+        int length;
+        if (data instanceof ByteBufferCloudEventData) {
+            ByteBufferCloudEventData buffer = (ByteBufferCloudEventData) data;
+            array = buffer.array();
+            offset = buffer.offset();
+            length = buffer.length();
+        } else {
+            array = data.toBytes();
+            offset = 0;
+            length = array.length;
         }
-        root.set(EXTENSIONS, extensions);
 
-        if (root.get(TRACEPARENT) != null) {
-            String traceparent = root.get(TRACEPARENT).asText();
-            if (!Objects.equals(traceparent, "")) {
-                root.set(TRACEID, objectMapper.valueToTree(traceparent));
-            }
+        if (isText(contentType)) {
+            generator.writeFieldName(DATA);
+            generator.writeUTF8String(array, offset, length);
+        } else {
+            generator.writeFieldName(DATA_BASE64);
+            generator.writeBinary(array, offset, length);
         }
+    }
 
-        try {
-            return objectMapper.writeValueAsBytes(root);
-        } catch (JsonProcessingException e) {
-            throw new EventSerializationException(e);
+    private static boolean isText(String contentType) {
+        // The data of an event without datacontenttype is JSON.
+        if (contentType == null) {
+            return true;
         }
+
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.contains("json") || type.contains("xml");
     }
 
     @Override
     public CloudEvent deserialize(@NotNull byte[] bytes, @NotNull CloudEventDataMapper<? extends CloudEventData> mapper) throws EventDeserializationException {
-        try {
-            String specversion = null;
-            String id = null;
-            URI source = null;
-            String type = null;
-            String datacontenttype = null;
-            URI schemaurl = null;
-            URI dataschema = null;
-            String subject = null;
-            OffsetDateTime time = null;
-            BytesCloudEventData data = null;
-            Map<String, Object> extensions = new HashMap<>();
-
-            JsonNode root = new ObjectMapper().readTree(bytes);
-            Iterator<String> fields = root.fieldNames();
-            while (fields.hasNext()) {
-                String field = fields.next();
-                JsonNode node = root.get(field);
-                if (node.isNull()) {
+        return deserialize(bytes, 0, bytes.length, mapper);
+    }
+
+    /**
+     * Deserializes the event stored in a range of the byte array. The data of the event is sliced from the
+     * array whenever it is stored as is, i.e. JSON data or a string without escape sequences, so the array
+     * must not be modified while the event is in use.
+     *
+     * @param bytes  the buffer holding the event
+     * @param offset the offset of the event in the buffer
+     * @param length the length of the event
+     * @param mapper the mapper applied to the data
+     * @return CloudEvent
+     * @throws EventDeserializationException if the event can not be parsed
+     */
+    public CloudEvent deserialize(@NotNull byte[] bytes, int offset, int length, @NotNull CloudEventDataMapper<? extends CloudEventData> mapper) throws EventDeserializationException {
+        String specversion = null;
+        String id = null;
+        URI source = null;
+        String type = null;
+        String datacontenttype = null;
+        URI schemaurl = null;
+        URI dataschema = null;
+        String subject = null;
+        OffsetDateTime time = null;
+        CloudEventData data = null;
+        Map<String, Object> extensions = new HashMap<>();
+
+        try (JsonParser parser = MAPPER.getFactory().createParser(bytes, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("cloud event must be a json object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
                     continue;
                 }
 
                 switch (field) {
                     case SPECVERSION:
-                        specversion = node.asText();
+                        specversion = parser.getText();
                         break;
                     case ID:
-                        id = node.asText();
+                        id = parser.getText();
                         break;
                     case SOURCE:
-                        source = new URI(node.asText());
+                        source = new URI(parser.getText());
                         break;
                     case TYPE:
-                        type = node.asText();
+                        type = parser.getText();
                         break;
                     case DATACONTENTTYPE:
-                        datacontenttype = node.asText();
+                        datacontenttype = parser.getText();
                         break;
                     case SCHEMAURL:
-                        schemaurl = new URI(node.asText());
+                        schemaurl = new URI(parser.getText());
                         break;
                     case SUBJECT:
-                        subject = node.asText();
+                        subject = parser.getText();
                         break;
                     case TIME:
-                        time = OffsetDateTime.parse(node.asText());
+                        time = OffsetDateTime.parse(parser.getText());
                         break;
                     case DATASCHEMA:
-                        dataschema = new URI(node.asText());
+                        dataschema = new URI(parser.getText());
                         break;
                     case DATA:
-                        data = BytesCloudEventData.wrap(node.asText().getBytes());
+                        data = readData(parser, bytes, offset, offset + length);
+                        break;
+                    case DATA_BASE64:
+                        data = ByteBufferCloudEventData.wrap(parser.getBinaryValue());
                         break;
                     case EXTENSIONS:
-                        Iterator<String> it = node.fieldNames();
-                        while ( it.hasNext() ) {
-                            String name = it.next();
-                            extensions.put(name, node.get(name));
+                        if (token != JsonToken.START_OBJECT) {
+                            parser.skipChildren();
+                            break;
+                        }
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String name = parser.getCurrentName();
+                            parser.nextToken();
+                            Object value = readExtension(parser);
+                            if (value != null) {
+                                extensions.put(name, value);
+                            }
                         }
                         break;
                     default:
-                        extensions.put(field, node);
+                        extensions.put(field, readExtension(parser));
                         break;
                 }
             }
-
-            if (Objects.equals(specversion, SpecVersion.V1.toString())) {
-                return new CloudEventV1(id, source, type, datacontenttype, dataschema, subject,time, data, extensions);
-            } else {
-                return new CloudEventV03(id, source, type, time, schemaurl, datacontenttype, subject, data, extensions);
+            if (data != null) {
+                data = mapper.map(data);
             }
         } catch (Exception e) {
             throw new EventDeserializationException(e);
         }
+
+        if (Objects.equals(specversion, SpecVersion.V1.toString())) {
+            return new CloudEventV1(id, source, type, datacontenttype, dataschema, subject, time, data, extensions);
+        } else {
+            return new CloudEventV03(id, source, type, time, schemaurl, datacontenttype, subject, data, extensions);
+        }
+    }
+
+    /**
+     * Reads the data the parser is positioned on, slicing it from the input whenever possible.
+     */
+    private static CloudEventData readData(JsonParser parser, byte[] bytes, int offset, int limit) throws IOException {
+        JsonToken token = parser.currentToken();
+        long tokenOffset = parser.getTokenLocation().getByteOffset();
+        if (tokenOffset >= 0) {
+            int start = offset + (int) tokenOffset;
+            if (token.isStructStart()) {
+                parser.skipChildren();
+                int end = offset + (int) parser.getCurrentLocation().getByteOffset();
+                return ByteBufferCloudEventData.wrap(bytes, start, end - start);
+            }
+
+            if (token == JsonToken.VALUE_STRING) {
+                // The bytes of a string without escape sequences are the UTF-8 encoded string itself.
+                int end = start + 1;
+                while (end < limit && bytes[end] != '"' && bytes[end] != '\\') {
+                    end++;
+                }
+                if (end < limit && bytes[end] == '"') {
+                    return ByteBufferCloudEventData.wrap(bytes, start + 1, end - start - 1);
+                }
+            }
+        }
+
+        if (token.isStructStart()) {
+            return ByteBufferCloudEventData.wrap(MAPPER.writeValueAsBytes(parser.readValueAsTree()));
+        }
+        return ByteBufferCloudEventData.wrap(parser.getText().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the value of an extension the parser is positioned on. Scalars are returned as
+     * String, Number or Boolean, objects and arrays as JsonNode.
+     */
+    private static Object readExtension(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                return parser.readValueAsTree();
+        }
     }
 
     @Override
@@ -18,14 +18,18 @@ package dev.openfunction.invoker;
 
 
 import dev.openfunction.invoker.context.RuntimeContext;
+import dev.openfunction.invoker.metrics.StartupProfile;
+import dev.openfunction.invoker.trigger.DaprSidecar;
 import dev.openfunction.invoker.trigger.DaprTrigger;
 import dev.openfunction.invoker.trigger.HttpTrigger;
 import dev.openfunction.invoker.trigger.Trigger;
+import dev.openfunction.invoker.trigger.TriggerManager;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -46,6 +50,7 @@ public class Runner {
     private static final String FunctionContextV1beta2 = "FUNC_CONTEXT_V1BETA2";
     private static final String FunctionTarget = "FUNCTION_TARGET";
     private static final String FunctionClasspath = "FUNCTION_CLASSPATH";
+    private static final String FunctionTraining = "FUNCTION_TRAINING";
 
     public static void main(String[] args) {
 
@@ -68,12 +73,36 @@ public class Runner {
                 throw new Error("Function context not set");
             }
 
+            boolean training = Boolean.parseBoolean(System.getenv(FunctionTraining));
+
+            StartupProfile.Phase phase = StartupProfile.begin("parse context");
+            RuntimeContext runtimeContext = new RuntimeContext(functionContext);
+            phase.end();
+
+            // All triggers share one dapr client and wait for the sidecar once. The wait runs in the background
+            // while the function is initialized, the triggers are ready once both are.
+            DaprSidecar sidecar = null;
+            if (runtimeContext.hasDaprTrigger() || runtimeContext.needToCreateDaprClient()) {
+                phase = StartupProfile.begin("create dapr client");
+                sidecar = new DaprSidecar(runtimeContext);
+                if (training) {
+                    sidecar.skipWaiting();
+                } else {
+                    sidecar.startWaiting();
+                }
+                phase.end();
+            }
+
+            phase = StartupProfile.begin("scan classpath");
             String classPath = System.getenv().getOrDefault(FunctionClasspath, System.getProperty("user.dir") + "/*");
             ClassLoader functionClassLoader = new URLClassLoader(classpathToUrls(classPath));
-            RuntimeContext runtimeContext = new RuntimeContext(functionContext, functionClassLoader);
+            phase.end();
 
+            runtimeContext.init(functionClassLoader);
+
+            phase = StartupProfile.begin("load functions");
             Class<?>[] functionClasses = loadTargets(target, functionClassLoader);
-            Set<Trigger> triggers = new HashSet<>();
+            List<Trigger> triggers = new ArrayList<>();
             if (runtimeContext.hasHttpTrigger()) {
                 triggers.add(new HttpTrigger(runtimeContext, functionClasses));
             }
@@ -81,16 +110,40 @@ public class Runner {
             if (runtimeContext.hasDaprTrigger()) {
                 triggers.add(new DaprTrigger(runtimeContext, functionClasses));
             }
-
-            for (Trigger trigger : triggers) {
-                trigger.start();
+            phase.end();
+
+            // A training run stops right after its requests, nothing is routed to it.
+            TriggerManager manager = new TriggerManager(triggers, sidecar,
+                    training ? 0 : runtimeContext.getDrainDelay(), runtimeContext.getShutdownTimeout());
+            manager.start();
+            logger.log(Level.INFO, "function " + runtimeContext.getName() + " ready in " + StartupProfile.summary());
+            if (training) {
+                train(manager);
+                return;
             }
+            manager.await();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Failed to run function", e);
             e.printStackTrace();
         }
     }
 
+    /**
+     * train sends a synthetic request through each trigger and stops the function. Run with
+     * -XX:ArchiveClassesAtExit, the JVM then writes the classes loaded so far to a dynamic CDS archive
+     * for the production runs to start from.
+     */
+    private static void train(TriggerManager manager) {
+        if (ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .noneMatch(arg -> arg.startsWith("-XX:ArchiveClassesAtExit"))) {
+            logger.log(Level.WARNING, "training run without -XX:ArchiveClassesAtExit, no CDS archive will be written");
+        }
+
+        manager.train();
+        manager.close();
+        logger.log(Level.INFO, "training done");
+    }
+
     private static Class<?>[] loadTargets(String target, ClassLoader functionClassLoader) throws ClassNotFoundException {
         String[] targets = target.split(",");
         Class<?>[] classes = new Class<?>[targets.length];
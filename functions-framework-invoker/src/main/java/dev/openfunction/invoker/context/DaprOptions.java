@@ -0,0 +1,111 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package dev.openfunction.invoker.context;
+
+import java.util.Objects;
+
+/**
+ * DaprOptions describes how the dapr trigger dispatches the events it receives.
+ */
+public class DaprOptions {
+    /**
+     * Execute the functions listed in FUNCTION_TARGET one after another.
+     */
+    public static final String DispatchSequential = "sequential";
+    /**
+     * Execute the functions listed in FUNCTION_TARGET concurrently.
+     */
+    public static final String DispatchParallel = "parallel";
+
+    private String dispatch = DispatchSequential;
+    private int maxParallelism;
+    private long functionTimeout;
+    private ExecutorConfig executor;
+    private int port;
+
+    public String getDispatch() {
+        return dispatch;
+    }
+
+    public void setDispatch(String dispatch) {
+        this.dispatch = dispatch;
+    }
+
+    public boolean isParallel() {
+        return Objects.equals(dispatch, DispatchParallel);
+    }
+
+    /**
+     * The maximum number of functions executing at the same time in parallel mode,
+     * 0 means the number of available processors.
+     *
+     * @return max parallelism
+     */
+    public int getMaxParallelism() {
+        return maxParallelism;
+    }
+
+    public void setMaxParallelism(int maxParallelism) {
+        this.maxParallelism = maxParallelism;
+    }
+
+    /**
+     * The time in milliseconds a function may run in parallel mode before the event fails, 0 means no timeout.
+     * The function is then interrupted, the cancellation is cooperative: a function that ignores the interrupt
+     * runs on and holds its thread, the events that find no free thread nor room in the queue fail.
+     *
+     * @return function timeout
+     */
+    public long getFunctionTimeout() {
+        return functionTimeout;
+    }
+
+    public void setFunctionTimeout(long functionTimeout) {
+        this.functionTimeout = functionTimeout;
+    }
+
+    /**
+     * The executor of the events received from dapr. When set, at most {@code maxThreads} events are
+     * executed at the same time and at most {@code queueSize} events wait for a thread; further events
+     * are returned to dapr to be redelivered. When not set, events are executed on the gRPC threads.
+     *
+     * @return ExecutorConfig
+     */
+    public ExecutorConfig getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(ExecutorConfig executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * The port of the gRPC server the sidecar delivers the events to, 0 means the port of the function.
+     * When the function also has an http trigger, 0 means the port after the port of the function, and the
+     * port must not be the one of the function.
+     *
+     * @return port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package dev.openfunction.invoker.context;
+
+import java.util.Objects;
+
+/**
+ * ExecutorConfig describes the threads a trigger uses to execute the user function.
+ */
+public class ExecutorConfig {
+    /**
+     * Run the user function on a bounded pool of platform threads.
+     */
+    public static final String ModePlatform = "platform";
+    /**
+     * Run every invocation of the user function on its own virtual thread,
+     * falls back to {@link #ModePlatform} if the JVM does not support virtual threads.
+     */
+    public static final String ModeVirtual = "virtual";
+
+    private String mode = ModePlatform;
+    private int maxThreads;
+    private int minThreads;
+    private int queueSize;
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public boolean isVirtual() {
+        return Objects.equals(mode, ModeVirtual);
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public int getMinThreads() {
+        return minThreads;
+    }
+
+    public void setMinThreads(int minThreads) {
+        this.minThreads = minThreads;
+    }
+
+    /**
+     * The number of invocations waiting for a thread, 0 means unbounded.
+     *
+     * @return queue size
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+}
@@ -45,6 +45,12 @@ class FunctionContext {
 
     private Triggers triggers;
 
+    private OutputOptions outputOptions;
+
+    private long shutdownTimeout = 25000;
+
+    private long drainDelay = 5000;
+
     public String getName() {
         return name;
     }
@@ -168,9 +174,34 @@ class FunctionContext {
         this.triggers = triggers;
     }
 
+    public OutputOptions getOutputOptions() {
+        return outputOptions;
+    }
+
+    public void setOutputOptions(OutputOptions outputOptions) {
+        this.outputOptions = outputOptions;
+    }
+
+    public long getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(long shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public long getDrainDelay() {
+        return drainDelay;
+    }
+
+    public void setDrainDelay(long drainDelay) {
+        this.drainDelay = drainDelay;
+    }
+
     static class Triggers {
         private HttpTrigger http;
         private DaprTrigger[] dapr;
+        private DaprOptions daprOptions;
 
         public HttpTrigger getHttp() {
             return http;
@@ -187,11 +218,20 @@ class FunctionContext {
         public void setDapr(DaprTrigger[] dapr) {
             this.dapr = dapr;
         }
+
+        public DaprOptions getDaprOptions() {
+            return daprOptions;
+        }
+
+        public void setDaprOptions(DaprOptions daprOptions) {
+            this.daprOptions = daprOptions;
+        }
     }
 
     static class HttpTrigger {
         private String port;
-
+        private ExecutorConfig executor;
+        private long maxBodySize;
 
         public String getPort() {
             return port;
@@ -200,6 +240,22 @@ class FunctionContext {
         public void setPort(String port) {
             this.port = port;
         }
+
+        public ExecutorConfig getExecutor() {
+            return executor;
+        }
+
+        public void setExecutor(ExecutorConfig executor) {
+            this.executor = executor;
+        }
+
+        public long getMaxBodySize() {
+            return maxBodySize;
+        }
+
+        public void setMaxBodySize(long maxBodySize) {
+            this.maxBodySize = maxBodySize;
+        }
     }
 
     static class DaprTrigger {
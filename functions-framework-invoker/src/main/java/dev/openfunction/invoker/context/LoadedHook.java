@@ -0,0 +1,76 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package dev.openfunction.invoker.context;
+
+import dev.openfunction.functions.Hook;
+import dev.openfunction.functions.Plugin;
+
+/**
+ * A hook or plugin loaded at startup. Its kind is resolved once, and a stateless hook is initialized once
+ * instead of on every call.
+ */
+@SuppressWarnings("deprecation")
+final class LoadedHook {
+    private final Hook hook;
+    private final Plugin plugin;
+    private final boolean stateless;
+    private final boolean tracing;
+    private final boolean async;
+
+    LoadedHook(Object instance) {
+        this.plugin = instance instanceof Plugin ? (Plugin) instance : null;
+        if (instance instanceof Hook && ((Hook) instance).isStateless()) {
+            this.hook = ((Hook) instance).init();
+            this.stateless = true;
+            this.tracing = Boolean.TRUE.equals(hook.needToTracing());
+        } else {
+            this.hook = instance instanceof Hook ? (Hook) instance : null;
+            this.stateless = false;
+            this.tracing = false;
+        }
+        this.async = hook != null && hook.isAsync();
+    }
+
+    boolean isHook() {
+        return hook != null;
+    }
+
+    boolean isAsync() {
+        return async;
+    }
+
+    boolean isPlugin() {
+        return plugin != null;
+    }
+
+    /**
+     * Returns the hook executing the next call.
+     */
+    Hook newHook() {
+        return stateless ? hook : hook.init();
+    }
+
+    /**
+     * Returns the plugin executing the next call.
+     */
+    Plugin newPlugin() {
+        return plugin.init();
+    }
+
+    boolean needToTracing(Hook instance) {
+        return stateless ? tracing : Boolean.TRUE.equals(instance.needToTracing());
+    }
+}
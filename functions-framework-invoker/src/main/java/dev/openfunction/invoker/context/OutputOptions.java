@@ -0,0 +1,128 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package dev.openfunction.invoker.context;
+
+/**
+ * OutputOptions describes how the data sent by the functions is delivered to the outputs.
+ */
+public class OutputOptions {
+    private int batchSize;
+    private long batchWindow = 10;
+    private int queueSize = 1024;
+    private int maxRetries = 3;
+    private long retryBackoff = 100;
+    private long maxRetryBackoff = 5000;
+    private long flushTimeout = 30000;
+
+    /**
+     * The maximum number of entries sent to an output together, 0 or 1 means each entry is sent on its own.
+     * Entries for a pubsub output are sent with a single bulk publish.
+     *
+     * @return batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * The time in milliseconds an entry may wait for the batch to fill up before the batch is sent anyway.
+     *
+     * @return batch window
+     */
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
+    public void setBatchWindow(long batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+    /**
+     * The number of entries queued for an output, {@code sendAsync} blocks while the queue is full, up to the
+     * flush timeout, then the entry fails.
+     *
+     * @return queue size
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * The number of times the delivery of an entry is retried before its future fails.
+     *
+     * @return max retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * The time in milliseconds to wait before the first retry, doubled for every further retry.
+     *
+     * @return retry backoff
+     */
+    public long getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(long retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    /**
+     * The maximum time in milliseconds to wait between two retries.
+     *
+     * @return max retry backoff
+     */
+    public long getMaxRetryBackoff() {
+        return maxRetryBackoff;
+    }
+
+    public void setMaxRetryBackoff(long maxRetryBackoff) {
+        this.maxRetryBackoff = maxRetryBackoff;
+    }
+
+    /**
+     * The time in milliseconds to wait for the data sent by a function to be delivered before its response
+     * is completed, 0 means no limit. It also bounds each attempt to deliver the data to the sidecar, and the
+     * time {@code sendAsync} blocks on a full queue.
+     *
+     * @return flush timeout
+     */
+    public long getFlushTimeout() {
+        return flushTimeout;
+    }
+
+    public void setFlushTimeout(long flushTimeout) {
+        this.flushTimeout = flushTimeout;
+    }
+
+    public boolean isBatching() {
+        return batchSize > 1;
+    }
+}
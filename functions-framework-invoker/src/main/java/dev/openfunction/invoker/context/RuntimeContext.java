@@ -21,6 +21,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.openfunction.functions.*;
 import dev.openfunction.invoker.Callback;
 import dev.openfunction.invoker.JsonEventFormat;
+import dev.openfunction.invoker.metrics.StartupProfile;
 import dev.openfunction.invoker.tracing.OpenTelemetryProvider;
 import dev.openfunction.invoker.tracing.SkywalkingProvider;
 import dev.openfunction.invoker.tracing.TracingProvider;
@@ -31,6 +32,9 @@ import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.ArrayUtils;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -56,7 +60,33 @@ public class RuntimeContext {
     private Map<String, Object> preHooks;
     private Map<String, Object> postHooks;
 
+    // The hooks in the configured order, resolved once so that a call does not inspect them again.
+    private LoadedHook[] preHookChain = new LoadedHook[0];
+    private LoadedHook[] postHookChain = new LoadedHook[0];
+
+    /**
+     * Executes the async hooks, null if there is none.
+     */
+    private ExecutorService hookExecutor;
+
+    /**
+     * Whether the function, the hooks and the plugins get spans of their own, or only the request does.
+     */
+    private boolean functionSpans = true;
+
     public RuntimeContext(String context, ClassLoader classLoader) throws Exception {
+        this(context);
+        init(classLoader);
+    }
+
+    /**
+     * Parses the function context only, {@link #init(ClassLoader)} must be called before the context is used.
+     * This lets the caller start waiting for the dapr sidecar before the hooks and the tracing are initialized.
+     *
+     * @param context the function context
+     * @throws Exception if the function context is invalid
+     */
+    public RuntimeContext(String context) throws Exception {
         functionContext = new ObjectMapper().
                 configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false).
                 readValue(context, FunctionContext.class);
@@ -64,7 +94,28 @@ public class RuntimeContext {
         preHooks = new HashMap<>();
         postHooks = new HashMap<>();
 
+        if (hasHttpTrigger() && hasDaprTrigger()) {
+            if (getDaprOptions().getPort() == getPort()) {
+                throw new IllegalArgumentException("the http and the dapr trigger can not both listen on port " + getPort() +
+                        ", set triggers.daprOptions.port to another port");
+            }
+            if (getDaprOptions().getPort() <= 0) {
+                logger.log(Level.WARNING, "triggers.daprOptions.port not set, the dapr trigger listens on port " + getDaprPort() +
+                        " next to the http trigger on port " + getPort());
+            }
+        }
+    }
+
+    /**
+     * init loads the hooks and initializes the tracing provider.
+     *
+     * @param classLoader the class loader of the function
+     * @throws Exception Exception
+     */
+    public void init(ClassLoader classLoader) throws Exception {
+        StartupProfile.Phase phase = StartupProfile.begin("load hooks");
         loadHooks(classLoader);
+        phase.end();
 
         TracingConfig  tracingConfig = getTracingConfig();
         if (tracingConfig != null && tracingConfig.isEnabled() && tracingConfig.getProvider() != null) {
@@ -73,6 +124,16 @@ public class RuntimeContext {
                 throw new IllegalArgumentException("unsupported tracing provider " + provider);
             }
 
+            String granularity = tracingConfig.getGranularity();
+            if (granularity != null && !Objects.equals(granularity, "")) {
+                if (!Objects.equals(granularity, TracingConfig.GranularityRequest) &&
+                        !Objects.equals(granularity, TracingConfig.GranularityFunction)) {
+                    throw new IllegalArgumentException("unsupported tracing granularity " + granularity);
+                }
+                functionSpans = Objects.equals(granularity, TracingConfig.GranularityFunction);
+            }
+
+            phase = StartupProfile.begin("init tracing");
             switch (provider) {
                 case TracingSkywalking:
                     tracingProvider = new SkywalkingProvider(tracingConfig,
@@ -87,11 +148,13 @@ public class RuntimeContext {
                             System.getenv(RuntimeContext.PodNamespaceEnvName));
                     break;
             }
+            phase.end();
         }
 
         EventFormatProvider.getInstance().registerFormat(new JsonEventFormat());
     }
 
+    @SuppressWarnings("deprecation")
     private TracingConfig getTracingConfig() {
         TracingConfig tracingConfig = functionContext.getTracing();
         if (tracingConfig != null) {
@@ -101,6 +164,7 @@ public class RuntimeContext {
         return functionContext.getPluginsTracing();
     }
 
+    @SuppressWarnings("deprecation")
     private void loadHooks(ClassLoader classLoader) {
         String[] preHookNames = functionContext.getPreHooks();
         if (ArrayUtils.isEmpty(preHookNames)) {
@@ -113,10 +177,32 @@ public class RuntimeContext {
         }
         preHooks = loadHooks(classLoader, preHookNames);
         postHooks = loadHooks(classLoader, postHookNames);
+        preHookChain = resolveHooks(preHooks);
+        postHookChain = resolveHooks(postHooks);
+
+        if (Arrays.stream(preHookChain).anyMatch(LoadedHook::isAsync) || Arrays.stream(postHookChain).anyMatch(LoadedHook::isAsync)) {
+            AtomicInteger seq = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "hook-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            // Keep the async hooks in the trace of the invocation.
+            hookExecutor = io.opentelemetry.context.Context.taskWrapping(executor);
+        }
+    }
+
+    private static LoadedHook[] resolveHooks(Map<String, Object> hooks) {
+        List<LoadedHook> chain = new ArrayList<>(hooks.size());
+        for (Object hook : hooks.values()) {
+            chain.add(new LoadedHook(hook));
+        }
+        return chain.toArray(new LoadedHook[0]);
     }
 
+    @SuppressWarnings("deprecation")
     private Map<String, Object> loadHooks(ClassLoader classLoader, String[] hookNames) {
-        Map<String, Object> hooks = new HashMap<>();
+        Map<String, Object> hooks = new LinkedHashMap<>();
         if (ArrayUtils.isEmpty(hookNames)) {
             return hooks;
         }
@@ -150,35 +236,234 @@ public class RuntimeContext {
         return functionContext.getName();
     }
 
+    /**
+     * getDaprPort returns the port of the gRPC server of the dapr trigger: triggers.daprOptions.port if set,
+     * otherwise the function port, or the next port when the http trigger listens on the function port.
+     *
+     * @return dapr trigger port
+     */
+    public int getDaprPort() {
+        if (getDaprOptions().getPort() > 0) {
+            return getDaprOptions().getPort();
+        }
+
+        return hasHttpTrigger() ? getPort() + 1 : getPort();
+    }
+
+    /**
+     * getHttpExecutor returns the executor configuration of the http trigger.
+     *
+     * @return ExecutorConfig, null if not configured
+     */
+    public ExecutorConfig getHttpExecutor() {
+        if (functionContext.getTriggers() == null || functionContext.getTriggers().getHttp() == null) {
+            return null;
+        }
+
+        return functionContext.getTriggers().getHttp().getExecutor();
+    }
+
+    /**
+     * getHttpMaxBodySize returns the maximum size in bytes of a http request body.
+     *
+     * @return the maximum size, 0 if the size is not limited
+     */
+    public long getHttpMaxBodySize() {
+        if (functionContext.getTriggers() == null || functionContext.getTriggers().getHttp() == null) {
+            return 0;
+        }
+
+        return Math.max(functionContext.getTriggers().getHttp().getMaxBodySize(), 0);
+    }
+
     public Map<String, Component> getInputs() {
         return functionContext.getInputs();
     }
 
+    /**
+     * isTracingEnabled tells whether a tracing provider is configured. Without one the executeWithTracing
+     * variants only call the callback, so callers can skip building it.
+     *
+     * @return true if tracing is enabled
+     */
+    public boolean isTracingEnabled() {
+        return tracingProvider != null;
+    }
+
+    /**
+     * getTraceContext returns the headers propagating the current trace context, so that the data sent
+     * to the outputs continues the trace.
+     *
+     * @return the headers, null if tracing is disabled or there is no trace
+     */
+    public Map<String, String> getTraceContext() {
+        if (tracingProvider == null) {
+            return null;
+        }
+
+        return tracingProvider.getTraceContext();
+    }
+
+    /**
+     * isFunctionTracingEnabled tells whether the function, the hooks and the plugins are traced in spans
+     * of their own. If not, only the request is traced.
+     *
+     * @return true if tracing is enabled with the function granularity
+     */
+    boolean isFunctionTracingEnabled() {
+        return tracingProvider != null && functionSpans;
+    }
+
+    /**
+     * executeWithTracing dispatches on the type of the object, prefer the typed variants.
+     */
+    @Deprecated
     public void executeWithTracing(Object obj, Callback callback) throws Exception {
-        if (tracingProvider != null) {
-            if (obj == null) {
-                tracingProvider.executeWithTracing(callback);
-            } else if (obj instanceof HttpRequest) {
-                tracingProvider.executeWithTracing((HttpRequest) obj, callback);
-            } else if (obj instanceof CloudEvent) {
-                tracingProvider.executeWithTracing((CloudEvent) obj, callback);
-            } else if (obj.getClass().isAssignableFrom(TopicEvent.class)) {
-                tracingProvider.executeWithTracing((TopicEvent) obj, callback);
-            } else if (obj.getClass().isAssignableFrom(BindingEvent.class)) {
-                tracingProvider.executeWithTracing((BindingEvent) obj, callback);
-            } else if (obj.getClass().isAssignableFrom(UserContext.class)) {
-                tracingProvider.executeWithTracing((UserContext) obj, callback);
-            } else if (obj instanceof Plugin) {
-                tracingProvider.executeWithTracing((Plugin) obj, callback);
-            } else if (obj instanceof Hook) {
-                tracingProvider.executeWithTracing((Hook) obj, callback);
-            }
+        if (obj == null) {
+            executeWithTracing(callback);
+        } else if (obj instanceof HttpRequest) {
+            executeWithTracing((HttpRequest) obj, callback);
+        } else if (obj instanceof CloudEvent) {
+            executeWithTracing((CloudEvent) obj, callback);
+        } else if (obj instanceof TopicEvent) {
+            executeWithTracing((TopicEvent) obj, callback);
+        } else if (obj instanceof BindingEvent) {
+            executeWithTracing((BindingEvent) obj, callback);
+        } else if (obj instanceof UserContext) {
+            executeWithTracing((UserContext) obj, callback);
+        } else if (obj instanceof Plugin) {
+            executeWithTracing((Plugin) obj, callback);
+        } else if (obj instanceof Hook) {
+            executeWithTracing((Hook) obj, callback);
         } else {
-            Error error = callback.execute();
-            if (error != null) {
-                logger.log(Level.WARNING, "execute failed, ", error);
-            }
+            executeWithTracing(callback);
+        }
+    }
+
+    public void executeWithTracing(HttpRequest httpRequest, Callback callback) throws Exception {
+        if (tracingProvider == null) {
+            execute(callback);
+            return;
         }
+        tracingProvider.executeWithTracing(httpRequest, callback);
+    }
+
+    public void executeWithTracing(CloudEvent event, Callback callback) throws Exception {
+        if (tracingProvider == null) {
+            execute(callback);
+            return;
+        }
+        tracingProvider.executeWithTracing(event, callback);
+    }
+
+    public void executeWithTracing(TopicEvent event, Callback callback) throws Exception {
+        if (tracingProvider == null) {
+            execute(callback);
+            return;
+        }
+        tracingProvider.executeWithTracing(event, callback);
+    }
+
+    public void executeWithTracing(BindingEvent event, Callback callback) throws Exception {
+        if (tracingProvider == null) {
+            execute(callback);
+            return;
+        }
+        tracingProvider.executeWithTracing(event, callback);
+    }
+
+    public void executeWithTracing(UserContext ctx, Callback callback) throws Exception {
+        if (!isFunctionTracingEnabled()) {
+            execute(callback);
+            return;
+        }
+        tracingProvider.executeWithTracing(ctx, callback);
+    }
+
+    @SuppressWarnings("deprecation")
+    public void executeWithTracing(Plugin plugin, Callback callback) throws Exception {
+        if (!isFunctionTracingEnabled()) {
+            execute(callback);
+            return;
+        }
+        tracingProvider.executeWithTracing(plugin, callback);
+    }
+
+    public void executeWithTracing(Hook hook, Callback callback) throws Exception {
+        if (!isFunctionTracingEnabled()) {
+            execute(callback);
+            return;
+        }
+        tracingProvider.executeWithTracing(hook, callback);
+    }
+
+    /**
+     * executeWithTracing executes the function itself in a span.
+     *
+     * @param callback executes the function
+     * @throws Exception Exception
+     */
+    public void executeWithTracing(Callback callback) throws Exception {
+        if (!isFunctionTracingEnabled()) {
+            execute(callback);
+            return;
+        }
+        tracingProvider.executeWithTracing(callback);
+    }
+
+    private static void execute(Callback callback) throws Exception {
+        Error error = callback.execute();
+        if (error != null) {
+            logger.log(Level.WARNING, "execute failed, ", error);
+        }
+    }
+
+    /**
+     * getDaprOptions returns the dispatch options of the dapr trigger.
+     *
+     * @return DaprOptions, the defaults if not configured
+     */
+    public DaprOptions getDaprOptions() {
+        if (functionContext.getTriggers() == null || functionContext.getTriggers().getDaprOptions() == null) {
+            return new DaprOptions();
+        }
+
+        return functionContext.getTriggers().getDaprOptions();
+    }
+
+    /**
+     * getOutputOptions returns the delivery options of the outputs.
+     *
+     * @return OutputOptions, the defaults if not configured
+     */
+    public OutputOptions getOutputOptions() {
+        if (functionContext.getOutputOptions() == null) {
+            return new OutputOptions();
+        }
+
+        return functionContext.getOutputOptions();
+    }
+
+    /**
+     * getShutdownTimeout returns the time in milliseconds the triggers have on shutdown to complete the
+     * requests in flight and deliver the queued outputs. It should be shorter than the grace period of
+     * the pod, 25 seconds by default.
+     *
+     * @return shutdown timeout
+     */
+    public long getShutdownTimeout() {
+        return functionContext.getShutdownTimeout();
+    }
+
+    /**
+     * getDrainDelay returns the time in milliseconds the triggers keep serving on shutdown before they drain,
+     * so that the requests routed to the pod until its endpoint is removed still succeed. It is part of the
+     * shutdown timeout, 5 seconds by default.
+     *
+     * @return drain delay
+     */
+    public long getDrainDelay() {
+        return functionContext.getDrainDelay();
     }
 
     public Map<String, Object> getPreHooks() {
@@ -189,6 +474,18 @@ public class RuntimeContext {
         return postHooks;
     }
 
+    LoadedHook[] getPreHookChain() {
+        return preHookChain;
+    }
+
+    LoadedHook[] getPostHookChain() {
+        return postHookChain;
+    }
+
+    ExecutorService getHookExecutor() {
+        return hookExecutor;
+    }
+
     public boolean hasHttpTrigger() {
         if (Objects.equals(functionContext.getRuntime(), SyncRuntime)) {
             return true;
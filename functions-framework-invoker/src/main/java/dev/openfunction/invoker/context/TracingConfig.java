@@ -4,10 +4,21 @@ import java.time.Duration;
 import java.util.Map;
 
 public class TracingConfig {
+    /**
+     * Only the request gets a span.
+     */
+    public static final String GranularityRequest = "request";
+    /**
+     * The request, the function, and every hook and plugin get a span, the default.
+     */
+    public static final String GranularityFunction = "function";
+
     private boolean enabled;
     private Provider provider;
     private Map<String, String> tags;
     private Map<String, String> baggage;
+    private Sampler sampler;
+    private String granularity;
 
     public boolean isEnabled() {
         return enabled;
@@ -41,6 +52,98 @@ public class TracingConfig {
         this.baggage = baggage;
     }
 
+    /**
+     * The sampler decides which traces are recorded, all of them if not set.
+     * Only the opentelemetry provider uses it, skywalking samples in the agent.
+     *
+     * @return Sampler
+     */
+    public Sampler getSampler() {
+        return sampler;
+    }
+
+    public void setSampler(Sampler sampler) {
+        this.sampler = sampler;
+    }
+
+    /**
+     * The spans created for a request, either {@value #GranularityRequest} or {@value #GranularityFunction}.
+     *
+     * @return granularity, {@value #GranularityFunction} if not set
+     */
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public static class Sampler {
+        public static final String AlwaysOn = "always_on";
+        public static final String AlwaysOff = "always_off";
+        public static final String Ratio = "ratio";
+        public static final String RateLimited = "rate_limited";
+
+        private String name;
+        private double ratio = 1;
+        private double rate;
+        private boolean parentBased = true;
+
+        /**
+         * One of {@value #AlwaysOn}, {@value #AlwaysOff}, {@value #Ratio} and {@value #RateLimited}.
+         *
+         * @return sampler name
+         */
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        /**
+         * The fraction of the traces recorded by the {@value #Ratio} sampler, between 0 and 1.
+         *
+         * @return ratio
+         */
+        public double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+
+        /**
+         * The number of traces per second recorded by the {@value #RateLimited} sampler.
+         *
+         * @return rate
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+
+        /**
+         * Whether a span with a remote parent follows the decision of the parent, the sampler only
+         * decides for the traces that start in the function. True by default.
+         *
+         * @return parent based
+         */
+        public boolean isParentBased() {
+            return parentBased;
+        }
+
+        public void setParentBased(boolean parentBased) {
+            this.parentBased = parentBased;
+        }
+    }
+
     public static class Provider {
         private String name;
         private String oapServer;
@@ -78,7 +181,62 @@ public class TracingConfig {
         private String compression;
         private Duration timeout;
         private String protocol;
+        private int maxQueueSize;
+        private int maxExportBatchSize;
+        private long scheduleDelay;
+        private long exportTimeout;
+
+        /**
+         * The number of finished spans waiting to be exported, spans finished while the queue is full are dropped.
+         *
+         * @return max queue size, 0 means the default of the provider
+         */
+        public int getMaxQueueSize() {
+            return maxQueueSize;
+        }
+
+        public void setMaxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+        }
+
+        /**
+         * The maximum number of spans exported together, no more than the queue size.
+         *
+         * @return max export batch size, 0 means the default of the provider
+         */
+        public int getMaxExportBatchSize() {
+            return maxExportBatchSize;
+        }
+
+        public void setMaxExportBatchSize(int maxExportBatchSize) {
+            this.maxExportBatchSize = maxExportBatchSize;
+        }
+
+        /**
+         * The time in milliseconds between two exports if the batch does not fill up before.
+         *
+         * @return schedule delay, 0 means the default of the provider
+         */
+        public long getScheduleDelay() {
+            return scheduleDelay;
+        }
+
+        public void setScheduleDelay(long scheduleDelay) {
+            this.scheduleDelay = scheduleDelay;
+        }
 
+        /**
+         * The time in milliseconds an export may take before it is cancelled.
+         *
+         * @return export timeout, 0 means the default of the provider
+         */
+        public long getExportTimeout() {
+            return exportTimeout;
+        }
+
+        public void setExportTimeout(long exportTimeout) {
+            this.exportTimeout = exportTimeout;
+        }
 
         public String getProtocol() {
             return protocol;
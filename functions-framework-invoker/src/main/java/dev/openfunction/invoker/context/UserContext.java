@@ -17,15 +17,23 @@ limitations under the License.
 package dev.openfunction.invoker.context;
 
 import dev.openfunction.functions.*;
-import dev.openfunction.invoker.Callback;
 import dev.openfunction.invoker.JsonEventFormat;
+import dev.openfunction.invoker.output.OutputSender;
 import io.cloudevents.CloudEvent;
 import io.cloudevents.core.v03.CloudEventBuilder;
 import io.dapr.client.DaprClient;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,6 +53,7 @@ public class UserContext implements Context {
 
     private final RuntimeContext runtimeContext;
     private final DaprClient daprClient;
+    private final OutputSender outputSender;
 
     private Out out;
 
@@ -56,10 +65,28 @@ public class UserContext implements Context {
     private HttpResponse httpResponse;
 
     private Object function;
+    private FunctionKind functionKind;
+    private Object payload;
+
+    /**
+     * The data sent asynchronously by the function and the hooks, delivered before the response is completed.
+     */
+    private final List<CompletableFuture<Void>> pendingOutputs = new ArrayList<>();
+
+    /**
+     * The async post hooks, executed once the invocation is done.
+     */
+    private final List<LoadedHook> deferredHooks = new ArrayList<>();
 
     public UserContext(RuntimeContext runtimeContext, DaprClient daprClient) {
+        // Nothing closes the sender of a single context, so it must not own pipeline workers.
+        this(runtimeContext, daprClient, daprClient == null ? null : new OutputSender(daprClient));
+    }
+
+    public UserContext(RuntimeContext runtimeContext, DaprClient daprClient, OutputSender outputSender) {
         this.runtimeContext = runtimeContext;
         this.daprClient = daprClient;
+        this.outputSender = outputSender;
     }
 
     public UserContext withHttp(HttpRequest httpRequest, HttpResponse httpResponse) {
@@ -81,35 +108,57 @@ public class UserContext implements Context {
     @Override
     @Deprecated
     public Error send(String outputName, String data) {
+        try {
+            send(outputName, data, false).join();
+        } catch (CompletionException e) {
+            return e.getCause() instanceof Error ? (Error) e.getCause() : new Error(e.getCause());
+        }
+
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(String outputName, String data) {
+        CompletableFuture<Void> future = send(outputName, data, true);
+        synchronized (pendingOutputs) {
+            pendingOutputs.add(future);
+        }
+        return future;
+    }
+
+    private CompletableFuture<Void> send(String outputName, String data, boolean batch) {
         if (data == null) {
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
         Map<String, Component> outputs = runtimeContext.getFunctionContext().getOutputs();
-        if (outputs.isEmpty()) {
-            return new Error("no output");
+        if (outputs == null || outputs.isEmpty()) {
+            return CompletableFuture.failedFuture(new Error("no output"));
         }
 
         Component output = outputs.get(outputName);
         if (output == null) {
-            return new Error("output " + outputName + " not found");
+            return CompletableFuture.failedFuture(new Error("output " + outputName + " not found"));
         }
 
+        Object payload;
         if (output.isPubsub()) {
-            daprClient.publishEvent(output.getComponentName(), output.getTopic(), data);
+            payload = data;
         } else if (output.isBinding()) {
             // If a middleware supports both binding and pubsub, then the data send to
             // binding must be in CloudEvent format, otherwise pubsub cannot parse the data.
-            byte[] payload = data.getBytes();
             if (MiddlewaresCloudEventFormatRequired.contains(output.getComponentType())) {
                 payload = packageAsCloudevent(data);
+            } else {
+                payload = data.getBytes();
             }
-
-            daprClient.invokeBinding(output.getComponentName(), output.getOperation(), payload).block();
         } else {
-            return new Error("unsupported output type " + output.getComponentType());
+            return CompletableFuture.failedFuture(new Error("unsupported output type " + output.getComponentType()));
         }
 
-        return null;
+        // Captured here, the data may be delivered on another thread.
+        Map<String, String> traceContext = runtimeContext.getTraceContext();
+        return batch ? outputSender.send(outputName, output, payload, traceContext) :
+                outputSender.sendNow(output, payload, traceContext);
     }
 
     @Override
@@ -189,26 +238,63 @@ public class UserContext implements Context {
     }
 
     private void executeHooks(boolean pre) throws Exception {
-        Map<String, Object> hooks;
-        if (pre) {
-            hooks = runtimeContext.getPreHooks();
-        } else {
-            hooks = runtimeContext.getPostHooks();
-        }
-        for (String name : hooks.keySet()) {
-            Object obj = hooks.get(name);
-            if (Hook.class.isAssignableFrom(obj.getClass())) {
-                executeHook(((Hook) obj).init());
+        LoadedHook[] hooks = pre ? runtimeContext.getPreHookChain() : runtimeContext.getPostHookChain();
+        List<Future<?>> asyncHooks = null;
+        for (LoadedHook hook : hooks) {
+            if (hook.isAsync()) {
+                if (asyncHooks == null) {
+                    asyncHooks = new ArrayList<>();
+                }
+                if (pre) {
+                    asyncHooks.add(runtimeContext.getHookExecutor().submit(() -> {
+                        executeHook(hook);
+                        return null;
+                    }));
+                } else {
+                    deferredHooks.add(hook);
+                }
+                continue;
             }
 
-            if (Plugin.class.isAssignableFrom(obj.getClass())) {
-                executePlugin(((Plugin) obj).init(), pre);
+            if (hook.isHook()) {
+                executeHook(hook);
             }
+
+            if (hook.isPlugin()) {
+                executePlugin(hook.newPlugin(), pre);
+            }
+        }
+
+        if (pre && asyncHooks != null) {
+            for (Future<?> future : asyncHooks) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands the async post hooks to the hook executor, they are not waited for.
+     */
+    private void executeDeferredHooks() {
+        for (LoadedHook hook : deferredHooks) {
+            runtimeContext.getHookExecutor().execute(() -> {
+                try {
+                    executeHook(hook);
+                } catch (Exception e) {
+                    logger.log(Level.SEVERE, "execute async hook error", e);
+                }
+            });
         }
+        deferredHooks.clear();
     }
 
+    @SuppressWarnings("deprecation")
     private void executePlugin(Plugin plugin, boolean pre) throws Exception {
-        if (plugin.needToTracing()) {
+        if (runtimeContext.isFunctionTracingEnabled() && plugin.needToTracing()) {
             runtimeContext.executeWithTracing(plugin, () -> {
                 Error error;
                 if (pre) {
@@ -235,8 +321,9 @@ public class UserContext implements Context {
         }
     }
 
-    private void executeHook(Hook hook) throws Exception {
-        if (hook.needToTracing()) {
+    private void executeHook(LoadedHook loaded) throws Exception {
+        Hook hook = loaded.newHook();
+        if (runtimeContext.isFunctionTracingEnabled() && loaded.needToTracing(hook)) {
             runtimeContext.executeWithTracing(hook, () -> {
                 Error error = hook.execute(UserContext.this);
                 if (error != null) {
@@ -255,53 +342,138 @@ public class UserContext implements Context {
 
     public void executeFunction(HttpFunction function) throws Exception {
         this.function = function;
-        executeFunction(() -> {
-            function.service(this.httpRequest, this.httpResponse);
-            return null;
-        });
+        this.functionKind = FunctionKind.Http;
+        execute();
     }
 
     public void executeFunction(CloudEventFunction function, CloudEvent event) throws Exception {
         this.function = function;
+        this.functionKind = FunctionKind.CloudEvent;
         this.cloudEvent = event;
-        executeFunction(() -> {
-            Error err = function.accept(UserContext.this, event);
-            if (err == null) {
-                httpResponse.setStatusCode(HttpServletResponse.SC_OK);
-                httpResponse.getOutputStream().write(out == null || out.getData() == null ? "Success".getBytes() : out.getData().array());
-            } else {
-                httpResponse.setStatusCode(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-                httpResponse.getOutputStream().write(err.getMessage().getBytes());
-            }
-            return null;
-        });
+        execute();
     }
 
     public void executeFunction(OpenFunction function, String payload) throws Exception {
         this.function = function;
-        executeFunction(() -> {
-            out = function.accept(UserContext.this, payload);
-            if (httpResponse != null) {
-                if (out == null || out.getError() == null) {
+        this.functionKind = FunctionKind.Open;
+        this.payload = payload;
+        execute();
+    }
+
+    public void executeFunction(StreamingOpenFunction function, InputStream payload) throws Exception {
+        this.function = function;
+        this.functionKind = FunctionKind.StreamingOpen;
+        this.payload = payload;
+        execute();
+    }
+
+    private Error invokeFunction() throws Exception {
+        switch (functionKind) {
+            case Http:
+                ((HttpFunction) function).service(this.httpRequest, this.httpResponse);
+                return null;
+            case CloudEvent:
+                Error err = ((CloudEventFunction) function).accept(UserContext.this, cloudEvent);
+                if (err == null) {
                     httpResponse.setStatusCode(HttpServletResponse.SC_OK);
                     httpResponse.getOutputStream().write(out == null || out.getData() == null ? "Success".getBytes() : out.getData().array());
                 } else {
                     httpResponse.setStatusCode(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-                    httpResponse.getOutputStream().write(out.getError().getMessage().getBytes());
+                    httpResponse.getOutputStream().write(err.getMessage().getBytes());
                 }
+                return null;
+            case Open:
+                out = ((OpenFunction) function).accept(UserContext.this, (String) payload);
+                writeOut();
+                return out == null ? null : out.getError();
+            case StreamingOpen:
+                out = ((StreamingOpenFunction) function).accept(UserContext.this, (InputStream) payload);
+                writeOut();
+                return out == null ? null : out.getError();
+            default:
+                throw new IllegalStateException("unknown function kind " + functionKind);
+        }
+    }
+
+    private void writeOut() throws IOException {
+        if (httpResponse == null) {
+            return;
+        }
+
+        if (out == null || out.getError() == null) {
+            httpResponse.setStatusCode(HttpServletResponse.SC_OK);
+            httpResponse.getOutputStream().write(out == null || out.getData() == null ? "Success".getBytes() : out.getData().array());
+        } else {
+            httpResponse.setStatusCode(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            httpResponse.getOutputStream().write(out.getError().getMessage().getBytes());
+        }
+    }
+
+    /**
+     * Waits for the data sent asynchronously to be delivered, so that the event is only acknowledged
+     * once its outputs are.
+     */
+    private void flushOutputs() throws Exception {
+        CompletableFuture<?>[] futures;
+        synchronized (pendingOutputs) {
+            if (pendingOutputs.isEmpty()) {
+                return;
             }
+            futures = pendingOutputs.toArray(new CompletableFuture<?>[0]);
+            pendingOutputs.clear();
+        }
 
-            return out == null ? null : out.getError();
-        });
+        // Without a sender the futures already failed, e.g. because the function has no output.
+        long timeout = (outputSender != null ? outputSender.getOptions() : new OutputOptions()).getFlushTimeout();
+        try {
+            if (timeout > 0) {
+                CompletableFuture.allOf(futures).get(timeout, TimeUnit.MILLISECONDS);
+            } else {
+                CompletableFuture.allOf(futures).get();
+            }
+        } catch (ExecutionException e) {
+            throw new Exception("send outputs failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new Exception("send outputs timed out after " + timeout + "ms");
+        }
     }
 
-    private void executeFunction(Callback callBack) throws Exception {
+    private void execute() throws Exception {
+        if (!runtimeContext.isFunctionTracingEnabled()) {
+            // Without spans for the function there is nothing to wrap, call everything directly.
+            executeHooks(true);
+            Error error = invokeFunction();
+            if (error != null) {
+                logger.log(Level.WARNING, "execute failed, ", error);
+            }
+            executeHooks(false);
+            // The async post hooks also see the invocations whose outputs failed.
+            try {
+                flushOutputs();
+            } finally {
+                executeDeferredHooks();
+            }
+            return;
+        }
+
         runtimeContext.executeWithTracing(this,
                 () -> {
                     executeHooks(true);
-                    runtimeContext.executeWithTracing(null, callBack);
+                    runtimeContext.executeWithTracing(this::invokeFunction);
                     executeHooks(false);
+                    try {
+                        flushOutputs();
+                    } finally {
+                        executeDeferredHooks();
+                    }
                     return null;
                 });
     }
+
+    private enum FunctionKind {
+        Http,
+        CloudEvent,
+        Open,
+        StreamingOpen
+    }
 }
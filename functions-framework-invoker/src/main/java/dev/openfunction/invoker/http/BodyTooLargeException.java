@@ -0,0 +1,29 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package dev.openfunction.invoker.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a http request body is larger than the configured maximum size.
+ */
+public class BodyTooLargeException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  public BodyTooLargeException(long maxBodySize) {
+    super("request body exceeds the maximum size of " + maxBodySize + " bytes");
+  }
+}
@@ -18,10 +18,16 @@ package dev.openfunction.invoker.http;
 
 import dev.openfunction.functions.HttpRequest;
 
+import io.cloudevents.CloudEvent;
+import io.cloudevents.SpecVersion;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.cloudevents.http.HttpMessageFactory;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.Part;
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.*;
 import java.util.regex.Matcher;
@@ -30,10 +36,28 @@ import java.util.regex.Pattern;
 import static java.util.stream.Collectors.toMap;
 
 public class HttpRequestImpl implements HttpRequest {
+  private static final String CE_PREFIX = "ce-";
+  private static final String CE_SPECVERSION = "ce-specversion";
+
   private final HttpServletRequest request;
+  private final long maxBodySize;
+  private InputStream body;
+  // Built on first use, the servlet request does not change while it is being serviced.
+  private Map<String, List<String>> headers;
+  private Map<String, List<String>> queryParameters;
 
   public HttpRequestImpl(HttpServletRequest request) {
+    this(request, 0);
+  }
+
+  /**
+   * @param request     the servlet request
+   * @param maxBodySize the maximum size of the body in bytes, reading more fails with
+   *                    {@link BodyTooLargeException}; 0 if the size is not limited
+   */
+  public HttpRequestImpl(HttpServletRequest request, long maxBodySize) {
     this.request = request;
+    this.maxBodySize = maxBodySize;
   }
 
   @Override
@@ -62,8 +86,15 @@ public class HttpRequestImpl implements HttpRequest {
 
   @Override
   public Map<String, List<String>> getQueryParameters() {
-    return request.getParameterMap().entrySet().stream()
-        .collect(toMap(Map.Entry::getKey, e -> Arrays.asList(e.getValue())));
+    if (queryParameters == null) {
+      Map<String, String[]> parameterMap = request.getParameterMap();
+      Map<String, List<String>> map = new HashMap<>(parameterMap.size() * 4 / 3 + 1);
+      for (Map.Entry<String, String[]> entry : parameterMap.entrySet()) {
+        map.put(entry.getKey(), Collections.unmodifiableList(Arrays.asList(entry.getValue())));
+      }
+      queryParameters = Collections.unmodifiableMap(map);
+    }
+    return queryParameters;
   }
 
   @Override
@@ -98,19 +129,87 @@ public class HttpRequestImpl implements HttpRequest {
 
   @Override
   public InputStream getInputStream() throws IOException {
-    return request.getInputStream();
+    if (maxBodySize <= 0) {
+      return request.getInputStream();
+    }
+
+    if (body == null) {
+      body = new LimitedInputStream(request.getInputStream(), maxBodySize);
+    }
+    return body;
   }
 
   @Override
   public BufferedReader getReader() throws IOException {
-    return request.getReader();
+    if (maxBodySize <= 0) {
+      return request.getReader();
+    }
+
+    return new BufferedReader(new InputStreamReader(getInputStream(), getCharset()));
+  }
+
+  /**
+   * Returns the charset of the body, UTF-8 if the request does not declare a supported one.
+   *
+   * @return Charset
+   */
+  public Charset getCharset() {
+    String encoding = request.getCharacterEncoding();
+    if (encoding != null) {
+      try {
+        return Charset.forName(encoding);
+      } catch (IllegalArgumentException e) {
+        // Fall through to the default.
+      }
+    }
+    return StandardCharsets.UTF_8;
   }
 
   @Override
   public Map<String, List<String>> getHeaders() {
-    return Collections.list(request.getHeaderNames()).stream()
-        .map(name -> new SimpleEntry<>(name, Collections.list(request.getHeaders(name))))
-        .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
+    if (headers == null) {
+      Map<String, List<String>> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      Enumeration<String> names = request.getHeaderNames();
+      while (names.hasMoreElements()) {
+        String name = names.nextElement();
+        map.put(name, Collections.unmodifiableList(Collections.list(request.getHeaders(name))));
+      }
+      headers = Collections.unmodifiableMap(map);
+    }
+    return headers;
+  }
+
+  /**
+   * Reads the CloudEvent carried by the request. The attributes of a binary mode event are read straight from
+   * the ce-* headers and its data is left in the body until it is used, see {@link StreamCloudEventData}.
+   * Structured and batched events are read by the CloudEvents SDK.
+   *
+   * @return CloudEvent
+   * @throws IOException if the body can not be read
+   */
+  public CloudEvent readCloudEvent() throws IOException {
+    String specVersion = request.getHeader(CE_SPECVERSION);
+    if (specVersion == null) {
+      return HttpMessageFactory.createReaderFromMultimap(getHeaders(), getInputStream().readAllBytes()).toEvent();
+    }
+
+    CloudEventBuilder builder = CloudEventBuilder.fromSpecVersion(SpecVersion.parse(specVersion));
+    Enumeration<String> names = request.getHeaderNames();
+    while (names.hasMoreElements()) {
+      String name = names.nextElement();
+      if (name.length() > CE_PREFIX.length() && name.regionMatches(true, 0, CE_PREFIX, 0, CE_PREFIX.length())
+          && !name.equalsIgnoreCase(CE_SPECVERSION)) {
+        builder.withContextAttribute(name.substring(CE_PREFIX.length()).toLowerCase(Locale.ROOT), request.getHeader(name));
+      }
+    }
+
+    String contentType = request.getContentType();
+    if (request.getContentLengthLong() != 0) {
+      builder.withData(contentType, new StreamCloudEventData(getInputStream()));
+    } else if (contentType != null) {
+      builder.withDataContentType(contentType);
+    }
+    return builder.build();
   }
 
   private static class HttpPartImpl implements HttpPart {
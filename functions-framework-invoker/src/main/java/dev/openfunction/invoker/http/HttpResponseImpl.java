@@ -101,6 +101,24 @@ public class HttpResponseImpl implements HttpResponse {
         return writer;
     }
 
+    /**
+     * Discards the headers and the body written so far, as long as none of it has been sent. The body is
+     * held back until it fills the buffer of the response or the request completes.
+     *
+     * @return false if the response has already been committed
+     */
+    public synchronized boolean reset() {
+        if (response.isCommitted()) {
+            return false;
+        }
+
+        // The content still in our writer is dropped with it.
+        writer = null;
+        response.reset();
+        code = HttpServletResponse.SC_OK;
+        return true;
+    }
+
     @Override
     public int getStatusCode() {
         return code;
@@ -0,0 +1,79 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package dev.openfunction.invoker.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that fails with {@link BodyTooLargeException} once more than a maximum number of bytes
+ * are read, for bodies whose size is not known upfront.
+ */
+class LimitedInputStream extends FilterInputStream {
+  private final long limit;
+  private long remaining;
+
+  LimitedInputStream(InputStream in, long limit) {
+    super(in);
+    this.limit = limit;
+    this.remaining = limit;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b >= 0) {
+      consume(1);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    // Read one byte more than allowed so that a body of exactly the maximum size passes.
+    int n = super.read(b, off, allowed(len));
+    if (n > 0) {
+      consume(n);
+    }
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = super.skip(Math.min(n, allowed(Integer.MAX_VALUE)));
+    if (skipped > 0) {
+      consume(skipped);
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private int allowed(int len) {
+    return remaining >= Integer.MAX_VALUE ? len : (int) Math.min(len, remaining + 1);
+  }
+
+  private void consume(long n) throws BodyTooLargeException {
+    remaining -= n;
+    if (remaining < 0) {
+      throw new BodyTooLargeException(limit);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package dev.openfunction.invoker.http;
+
+import io.cloudevents.CloudEventData;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * CloudEvent data backed by the body of a http request. Nothing is read until the data is used, either
+ * as a stream with {@link #getInputStream()} or as bytes with {@link #toBytes()}, which reads the body
+ * once and keeps it. The body can only be read while the request is being serviced.
+ */
+public class StreamCloudEventData implements CloudEventData {
+  private final InputStream body;
+  private byte[] bytes;
+  private boolean consumed;
+
+  public StreamCloudEventData(InputStream body) {
+    this.body = body;
+  }
+
+  /**
+   * Returns the body as a stream. The request stream itself is handed out the first time, if the body has
+   * not been read into memory, so a large body can be processed without buffering it.
+   *
+   * @return InputStream
+   */
+  public synchronized InputStream getInputStream() {
+    if (bytes != null) {
+      return new ByteArrayInputStream(bytes);
+    }
+    if (consumed) {
+      throw new IllegalStateException("the body has already been consumed as a stream");
+    }
+
+    consumed = true;
+    return body;
+  }
+
+  @Override
+  public synchronized byte[] toBytes() {
+    if (bytes == null) {
+      if (consumed) {
+        throw new IllegalStateException("the body has already been consumed as a stream");
+      }
+      try {
+        bytes = body.readAllBytes();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return bytes;
+  }
+}
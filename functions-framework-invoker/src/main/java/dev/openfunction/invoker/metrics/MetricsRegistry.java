@@ -0,0 +1,55 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package dev.openfunction.invoker.metrics;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Publishes the invoker metrics as MXBeans on the platform MBean server, so they can be read
+ * with JMX or scraped by a JMX exporter.
+ */
+public final class MetricsRegistry {
+    private static final Logger logger = Logger.getLogger("dev.openfunction.invoker");
+
+    public static final String Domain = "dev.openfunction.invoker";
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * register publishes the bean as {@code dev.openfunction.invoker:type=<type>}, replacing any bean
+     * registered with the same type before.
+     *
+     * @param type  type of the bean
+     * @param mbean an object implementing an MXBean interface
+     */
+    public static void register(String type, Object mbean) {
+        try {
+            ObjectName name = new ObjectName(Domain, "type", type);
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "register metrics " + type + " error, " + e.getMessage());
+        }
+    }
+}
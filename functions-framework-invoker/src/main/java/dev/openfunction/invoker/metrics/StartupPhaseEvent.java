@@ -0,0 +1,37 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package dev.openfunction.invoker.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * StartupPhaseEvent is the JFR event committed for every startup phase of the function, its duration is
+ * the duration of the phase.
+ */
+@Name("dev.openfunction.invoker.StartupPhase")
+@Label("Startup Phase")
+@Category({"OpenFunction", "Startup"})
+@Description("A phase of the function startup")
+@StackTrace(false)
+class StartupPhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+}
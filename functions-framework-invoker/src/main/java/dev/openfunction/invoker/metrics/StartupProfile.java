@@ -0,0 +1,121 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package dev.openfunction.invoker.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StartupProfile records the phases of the function startup, so that the cold start can be tuned with data.
+ * Every phase is committed as a {@code dev.openfunction.invoker.StartupPhase} JFR event, and the phases are
+ * logged in one line once the function is ready. Phases may run at the same time, e.g. the sidecar wait
+ * overlaps the loading of the function.
+ */
+public final class StartupProfile {
+    // jdk.jfr is missing from some trimmed runtimes, the phases are only logged there.
+    private static final boolean JfrAvailable = isJfrAvailable();
+
+    private static final long Start = System.nanoTime();
+    // The time the JVM took to call main, only known in milliseconds.
+    private static final long JvmStartMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+    private static final List<Phase> phases = new ArrayList<>();
+
+    private StartupProfile() {
+    }
+
+    /**
+     * begin starts a phase, the phase is recorded once it ends.
+     *
+     * @param name name of the phase
+     * @return the started phase
+     */
+    public static Phase begin(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * summary describes the startup so far in one line, each phase with its duration in order of start.
+     *
+     * @return the summary
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(format(System.nanoTime() - Start)).append(" after main, jvm start ").append(JvmStartMillis).append("ms");
+        synchronized (phases) {
+            phases.sort((a, b) -> Long.compare(a.start, b.start));
+            for (Phase phase : phases) {
+                sb.append(", ").append(phase.name).append(' ').append(format(phase.duration));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String format(long nanos) {
+        return String.format(Locale.ROOT, "%.3fms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    public static final class Phase {
+        private final String name;
+        private final long start;
+        private final Object event;
+        private long duration = -1;
+
+        private Phase(String name) {
+            this.name = name;
+            this.event = JfrAvailable ? beginEvent(name) : null;
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * end records the phase, ending it again has no effect.
+         */
+        public void end() {
+            long now = System.nanoTime();
+            synchronized (phases) {
+                if (duration >= 0) {
+                    return;
+                }
+                duration = now - start;
+                phases.add(this);
+            }
+
+            if (event != null) {
+                ((StartupPhaseEvent) event).commit();
+            }
+        }
+
+        private static Object beginEvent(String name) {
+            StartupPhaseEvent event = new StartupPhaseEvent();
+            event.phase = name;
+            event.begin();
+            return event;
+        }
+    }
+}
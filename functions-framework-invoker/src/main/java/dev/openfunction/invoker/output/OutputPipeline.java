@@ -0,0 +1,231 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package dev.openfunction.invoker.output;
+
+import dev.openfunction.functions.Component;
+import dev.openfunction.invoker.context.OutputOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers the data for one output. The data is queued in a bounded queue and sent by a dedicated worker,
+ * which collects up to a batch of data, sends it and retries the failed entries with an exponential backoff.
+ */
+class OutputPipeline {
+    private static final Logger logger = Logger.getLogger("dev.openfunction.invoker");
+
+    private static final long PollInterval = 100;
+
+    private final OutputSender sender;
+    private final String name;
+    private final Component output;
+    private final OutputOptions options;
+    private final int batchSize;
+    private final BlockingQueue<Entry> queue;
+    private final Thread worker;
+
+    private volatile boolean closed;
+
+    OutputPipeline(OutputSender sender, String name, Component output, OutputOptions options) {
+        this.sender = sender;
+        this.name = name;
+        this.output = output;
+        this.options = options;
+        this.batchSize = options.isBatching() ? options.getBatchSize() : 1;
+        this.queue = new ArrayBlockingQueue<>(Math.max(options.getQueueSize(), batchSize));
+
+        worker = new Thread(this::run, "output-" + name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    CompletableFuture<Void> add(Object data, Map<String, String> traceContext) {
+        Entry entry = new Entry(data, traceContext);
+        if (closed) {
+            entry.future.completeExceptionally(new IllegalStateException("output " + name + " is closed"));
+            return entry.future;
+        }
+
+        try {
+            // Push back on the function when the sidecar can not keep up, up to the flush timeout.
+            long timeout = options.getFlushTimeout();
+            if (timeout <= 0) {
+                queue.put(entry);
+            } else if (!queue.offer(entry, timeout, TimeUnit.MILLISECONDS)) {
+                entry.future.completeExceptionally(new IllegalStateException("output " + name + " is full after " + timeout + "ms"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entry.future.completeExceptionally(e);
+        }
+        return entry.future;
+    }
+
+    /**
+     * Stops accepting data, the queued data is still delivered.
+     */
+    void stop() {
+        closed = true;
+    }
+
+    /**
+     * Stops accepting data and waits for the queued data to be delivered.
+     *
+     * @param timeout the maximum time to wait in milliseconds, 0 means no limit
+     */
+    void close(long timeout) {
+        closed = true;
+        try {
+            worker.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Fail what was added while closing or could not be delivered in time.
+        List<Entry> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(entry -> entry.future.completeExceptionally(new IllegalStateException("output " + name + " is closed")));
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(PollInterval, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                collect(batch);
+                deliver(batch);
+            } catch (InterruptedException e) {
+                // The worker is gone, fail what it holds and what is queued instead of leaving it pending.
+                closed = true;
+                queue.drainTo(batch);
+                IllegalStateException error = new IllegalStateException("output " + name + " is interrupted");
+                batch.forEach(entry -> entry.future.completeExceptionally(error));
+                break;
+            } catch (Throwable t) {
+                logger.log(Level.SEVERE, "deliver to output " + name + " failed", t);
+                batch.forEach(entry -> entry.future.completeExceptionally(t));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Fills up the batch with the queued data, waiting up to the batch window for more data to come.
+     */
+    private void collect(List<Entry> batch) throws InterruptedException {
+        if (batchSize <= 1) {
+            return;
+        }
+
+        queue.drainTo(batch, batchSize - batch.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getBatchWindow());
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            Entry entry = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (entry == null) {
+                break;
+            }
+            batch.add(entry);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    private void deliver(List<Entry> batch) throws InterruptedException, ExecutionException {
+        List<Entry> pending = batch;
+        long backoff = options.getRetryBackoff();
+        for (int attempt = 0; ; attempt++) {
+            List<Object> data = new ArrayList<>(pending.size());
+            List<Map<String, String>> traceContexts = new ArrayList<>(pending.size());
+            for (Entry entry : pending) {
+                data.add(entry.data);
+                traceContexts.add(entry.traceContext);
+            }
+            Throwable[] errors = send(data, traceContexts);
+
+            List<Entry> failed = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                Entry entry = pending.get(i);
+                if (errors[i] == null) {
+                    entry.future.complete(null);
+                } else if (attempt < options.getMaxRetries()) {
+                    failed.add(entry);
+                } else {
+                    entry.future.completeExceptionally(errors[i]);
+                }
+            }
+            if (failed.isEmpty()) {
+                return;
+            }
+
+            logger.log(Level.WARNING, "deliver " + failed.size() + " entries to output " + name + " failed, retry in " + backoff + "ms");
+            Thread.sleep(backoff);
+            backoff = Math.min(backoff * 2, options.getMaxRetryBackoff());
+            pending = failed;
+        }
+    }
+
+    /**
+     * Sends the data, a call to the sidecar that does not complete within the flush timeout fails the attempt
+     * so that a hung sidecar does not stop the worker.
+     */
+    private Throwable[] send(List<Object> data, List<Map<String, String>> traceContexts) throws InterruptedException, ExecutionException {
+        CompletableFuture<Throwable[]> result = sender.sendBatch(output, data, traceContexts);
+        long timeout = options.getFlushTimeout();
+        if (timeout <= 0) {
+            return result.get();
+        }
+
+        try {
+            return result.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            Throwable[] errors = new Throwable[data.size()];
+            Arrays.fill(errors, new TimeoutException("deliver to output " + name + " timed out after " + timeout + "ms"));
+            return errors;
+        }
+    }
+
+    private static class Entry {
+        private final Object data;
+        private final Map<String, String> traceContext;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Entry(Object data, Map<String, String> traceContext) {
+            this.data = data;
+            this.traceContext = traceContext;
+        }
+    }
+}
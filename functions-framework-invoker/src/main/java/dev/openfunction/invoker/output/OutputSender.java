@@ -0,0 +1,197 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package dev.openfunction.invoker.output;
+
+import dev.openfunction.functions.Component;
+import dev.openfunction.invoker.context.OutputOptions;
+import io.dapr.client.DaprClient;
+import io.dapr.client.DaprPreviewClient;
+import io.dapr.client.domain.BulkPublishEntry;
+import io.dapr.client.domain.BulkPublishRequest;
+import io.dapr.client.domain.BulkPublishResponseFailedEntry;
+import reactor.core.publisher.Mono;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the data of the functions to the outputs through the dapr sidecar. Data sent asynchronously is
+ * queued in the {@link OutputPipeline} of its output, which delivers it in the background, in batches
+ * if batching is enabled, and retries failed deliveries.
+ */
+public class OutputSender implements Closeable {
+    private static final String ContentTypeJson = "application/json";
+
+    private final DaprClient daprClient;
+    private final OutputOptions options;
+
+    /**
+     * The pipeline of each output, null if the data is always sent right away.
+     */
+    private final Map<String, OutputPipeline> pipelines;
+
+    public OutputSender(DaprClient daprClient, OutputOptions options) {
+        this.daprClient = daprClient;
+        this.options = options;
+        this.pipelines = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a sender without pipelines, which sends all data right away and has no worker to close.
+     *
+     * @param daprClient DaprClient
+     */
+    public OutputSender(DaprClient daprClient) {
+        this.daprClient = daprClient;
+        this.options = new OutputOptions();
+        this.pipelines = null;
+    }
+
+    public OutputOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Queues the data for the output, blocks while the queue of the output is full. A sender without
+     * pipelines sends it right away.
+     *
+     * @param name   the name of the output
+     * @param output the output
+     * @param data   a String for a pubsub output, the payload bytes for a binding output
+     * @param traceContext the headers propagating the trace context to the sidecar, may be null
+     * @return a future completed when the sidecar accepted the data, or when the retries are exhausted
+     */
+    public CompletableFuture<Void> send(String name, Component output, Object data, Map<String, String> traceContext) {
+        if (pipelines == null) {
+            return sendNow(output, data, traceContext);
+        }
+
+        return pipelines.computeIfAbsent(name, k -> new OutputPipeline(this, name, output, options)).add(data, traceContext);
+    }
+
+    /**
+     * Sends the data to the output right away.
+     *
+     * @param output the output
+     * @param data   a String for a pubsub output, the payload bytes for a binding output
+     * @param traceContext the headers propagating the trace context to the sidecar, may be null
+     * @return a future completed when the sidecar accepted the data
+     */
+    public CompletableFuture<Void> sendNow(Component output, Object data, Map<String, String> traceContext) {
+        if (output.isPubsub()) {
+            return withTraceContext(daprClient.publishEvent(output.getComponentName(), output.getTopic(), data), traceContext).toFuture();
+        }
+
+        return withTraceContext(daprClient.invokeBinding(output.getComponentName(), output.getOperation(), data), traceContext).toFuture();
+    }
+
+    /**
+     * The dapr client sends the traceparent and tracestate found in the subscriber context as gRPC headers,
+     * the sidecar then continues the trace.
+     */
+    private static <T> Mono<T> withTraceContext(Mono<T> mono, Map<String, String> traceContext) {
+        if (traceContext == null) {
+            return mono;
+        }
+
+        return mono.contextWrite(reactor.util.context.Context.of(traceContext));
+    }
+
+    /**
+     * Sends the data to the output together, with a single bulk publish for a pubsub output.
+     *
+     * @param traceContexts the headers propagating the trace context of each entry, null entries allowed
+     * @return a future of the error of each entry, null for the entries that were sent
+     */
+    CompletableFuture<Throwable[]> sendBatch(Component output, List<Object> data, List<Map<String, String>> traceContexts) {
+        if (output.isPubsub() && data.size() > 1 && daprClient instanceof DaprPreviewClient) {
+            return publishBatch(output, data, traceContexts);
+        }
+
+        // There is no bulk API for bindings, at least the requests of the batch are in flight together.
+        Throwable[] errors = new Throwable[data.size()];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[data.size()];
+        for (int i = 0; i < data.size(); i++) {
+            int index = i;
+            futures[i] = sendNow(output, data.get(i), traceContexts.get(i)).whenComplete((v, t) -> errors[index] = t);
+        }
+        return CompletableFuture.allOf(futures).handle((v, t) -> errors);
+    }
+
+    private CompletableFuture<Throwable[]> publishBatch(Component output, List<Object> data, List<Map<String, String>> traceContexts) {
+        List<BulkPublishEntry<Object>> entries = new ArrayList<>(data.size());
+        for (int i = 0; i < data.size(); i++) {
+            entries.add(new BulkPublishEntry<>(Integer.toString(i), data.get(i), ContentTypeJson));
+        }
+
+        // A bulk publish is a single call, it continues the trace of the first entry that has one.
+        Map<String, String> traceContext = null;
+        for (Map<String, String> context : traceContexts) {
+            if (context != null) {
+                traceContext = context;
+                break;
+            }
+        }
+
+        BulkPublishRequest<Object> request = new BulkPublishRequest<>(output.getComponentName(), output.getTopic(), entries);
+        return withTraceContext(((DaprPreviewClient) daprClient).publishEvents(request), traceContext).toFuture().handle((response, t) -> {
+            Throwable[] errors = new Throwable[data.size()];
+            if (t != null) {
+                Arrays.fill(errors, t);
+            } else if (response.getFailedEntries() != null) {
+                for (BulkPublishResponseFailedEntry<Object> entry : response.getFailedEntries()) {
+                    errors[Integer.parseInt(entry.getEntry().getEntryId())] =
+                            new Exception("publish to " + output.getComponentName() + " failed, " + entry.getErrorMessage());
+                }
+            }
+            return errors;
+        });
+    }
+
+    /**
+     * Delivers the queued data and stops the pipelines, waits up to the flush timeout.
+     */
+    @Override
+    public void close() {
+        close(options.getFlushTimeout());
+    }
+
+    /**
+     * Delivers the queued data and stops the pipelines. The pipelines deliver at the same time,
+     * the data not delivered in time fails.
+     *
+     * @param timeout the maximum time to wait in milliseconds, 0 means no limit
+     */
+    public void close(long timeout) {
+        if (pipelines == null) {
+            return;
+        }
+
+        pipelines.values().forEach(OutputPipeline::stop);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (OutputPipeline pipeline : pipelines.values()) {
+            // join(0) waits forever, so wait at least a millisecond once the deadline passed.
+            pipeline.close(timeout <= 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+    }
+}
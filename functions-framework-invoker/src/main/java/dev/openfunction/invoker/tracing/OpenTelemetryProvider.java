@@ -4,11 +4,13 @@ import dev.openfunction.functions.*;
 import dev.openfunction.invoker.Callback;
 import dev.openfunction.invoker.context.TracingConfig;
 import dev.openfunction.invoker.context.UserContext;
+import dev.openfunction.invoker.metrics.MetricsRegistry;
 import io.cloudevents.CloudEvent;
-import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
 import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
@@ -31,15 +33,21 @@ import io.opentelemetry.sdk.OpenTelemetrySdk;
 import io.opentelemetry.sdk.OpenTelemetrySdkBuilder;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
 import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessorBuilder;
 import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
 import io.opentelemetry.semconv.resource.attributes.ResourceAttributes;
 import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 public class OpenTelemetryProvider implements TracingProvider {
     private static final String OTEL_LIBRARY_NAME = "opentelemetry-java";
@@ -47,10 +55,92 @@ public class OpenTelemetryProvider implements TracingProvider {
 
     private static final String Protocol_HTTP = "http";
 
+    // The default of the BatchSpanProcessor, which it does not expose.
+    private static final int DEFAULT_MAX_QUEUE_SIZE = 2048;
+
+    private static final AttributeKey<String> KIND = AttributeKey.stringKey("kind");
+    private static final AttributeKey<String> NAME = AttributeKey.stringKey("name");
+    private static final AttributeKey<String> VERSION = AttributeKey.stringKey("version");
+    private static final AttributeKey<String> FUNCTION = AttributeKey.stringKey("function");
+
+    // The attributes of a function span only depend on the function class.
+    private static final ClassValue<Attributes> functionAttributes = new ClassValue<>() {
+        @Override
+        protected Attributes computeValue(@NotNull Class<?> type) {
+            return Attributes.of(FUNCTION, type.getName());
+        }
+    };
+
+    // The getters read the trace context straight from the incoming message.
+    private static final TextMapGetter<HttpRequest> httpRequestGetter = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(@NotNull HttpRequest carrier) {
+            return carrier.getHeaders().keySet();
+        }
+
+        @Override
+        public String get(HttpRequest carrier, @NotNull String key) {
+            if (carrier == null) {
+                return null;
+            }
+            List<String> values = carrier.getHeaders().get(key);
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+    };
+
+    private static final TextMapGetter<CloudEvent> cloudEventGetter = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(@NotNull CloudEvent carrier) {
+            return carrier.getExtensionNames();
+        }
+
+        @Override
+        public String get(CloudEvent carrier, @NotNull String key) {
+            if (carrier == null) {
+                return null;
+            }
+            Object value = carrier.getExtension(key);
+            return value == null ? null : value.toString();
+        }
+    };
+
+    private static final TextMapGetter<BindingEvent> bindingEventGetter = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(@NotNull BindingEvent carrier) {
+            return carrier.getMetadata() == null ? Collections.emptySet() : carrier.getMetadata().keySet();
+        }
+
+        @Override
+        public String get(BindingEvent carrier, @NotNull String key) {
+            if (carrier == null || carrier.getMetadata() == null) {
+                return null;
+            }
+            return carrier.getMetadata().get(key);
+        }
+    };
+
+    private static final TextMapGetter<TopicEvent> topicEventGetter = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(@NotNull TopicEvent carrier) {
+            return carrier.getExtensions() == null ? Collections.emptySet() : carrier.getExtensions().keySet();
+        }
+
+        @Override
+        public String get(TopicEvent carrier, @NotNull String key) {
+            if (carrier == null || carrier.getExtensions() == null) {
+                return null;
+            }
+            return carrier.getExtensions().get(key);
+        }
+    };
+
     private final String functionName;
     private  Map<String, String> tags;
     private final Map<String, String> baggage;
-    private final TextMapGetter<Map<String, String>> getter;
+    private final Tracer tracer;
+    private final TextMapPropagator propagator;
+    // The attributes set on every span.
+    private final Attributes globalAttributes;
 
     public OpenTelemetryProvider(TracingConfig config, String functionName, String pod, String namespace) throws Exception {
         this.functionName = functionName;
@@ -86,25 +176,16 @@ public class OpenTelemetryProvider implements TracingProvider {
                     .merge(Resource.create(Attributes.of(ResourceAttributes.SERVICE_NAME, functionName)));
 
             SdkTracerProvider sdkTracerProvider = SdkTracerProvider.builder()
-                    .addSpanProcessor(BatchSpanProcessor.builder(spanExporter).build())
+                    .addSpanProcessor(createSpanProcessor(exporter, spanExporter))
                     .setResource(resource)
+                    .setSampler(createSampler(config.getSampler()))
                     .build();
             openTelemetrySdkBuilder.setTracerProvider(sdkTracerProvider);
         }
 
-        openTelemetrySdkBuilder.buildAndRegisterGlobal();
-
-        getter = new TextMapGetter<>() {
-            @Override
-            public Iterable<String> keys(@NotNull Map<String, String> carrier) {
-                return carrier.keySet();
-            }
-
-            @Override
-            public String get(Map<String, String> carrier, @NotNull String key) {
-                return carrier.get(key);
-            }
-        };
+        OpenTelemetrySdk openTelemetry = openTelemetrySdkBuilder.buildAndRegisterGlobal();
+        tracer = openTelemetry.getTracer(OTEL_LIBRARY_NAME, OTEL_LIBRARY_VERSION);
+        propagator = openTelemetry.getPropagators().getTextMapPropagator();
 
         tags = config.getTags();
         if (tags == null) {
@@ -118,6 +199,58 @@ public class OpenTelemetryProvider implements TracingProvider {
         }
 
         baggage = config.getBaggage();
+
+        AttributesBuilder attributes = Attributes.builder()
+                .put(SemanticAttributes.FAAS_INVOKED_NAME, functionName)
+                .put(SemanticAttributes.FAAS_INVOKED_PROVIDER, "OpenFunction");
+        putAll(attributes, tags);
+        globalAttributes = attributes.build();
+    }
+
+    private static SpanProcessor createSpanProcessor(TracingConfig.Exporter exporter, SpanExporter spanExporter) {
+        int maxQueueSize = exporter.getMaxQueueSize() > 0 ? exporter.getMaxQueueSize() : DEFAULT_MAX_QUEUE_SIZE;
+        SpanExportMetrics metrics = new SpanExportMetrics(maxQueueSize);
+        BatchSpanProcessorBuilder builder = BatchSpanProcessor.builder(metrics.wrap(spanExporter))
+                .setMaxQueueSize(maxQueueSize)
+                .setMeterProvider(metrics.getMeterProvider());
+        if (exporter.getMaxExportBatchSize() > 0) {
+            builder.setMaxExportBatchSize(exporter.getMaxExportBatchSize());
+        }
+        if (exporter.getScheduleDelay() > 0) {
+            builder.setScheduleDelay(exporter.getScheduleDelay(), TimeUnit.MILLISECONDS);
+        }
+        if (exporter.getExportTimeout() > 0) {
+            builder.setExporterTimeout(exporter.getExportTimeout(), TimeUnit.MILLISECONDS);
+        }
+
+        MetricsRegistry.register("Tracing", metrics);
+        return builder.build();
+    }
+
+    private static Sampler createSampler(TracingConfig.Sampler config) {
+        if (config == null || config.getName() == null || Objects.equals(config.getName(), "")) {
+            return Sampler.parentBased(Sampler.alwaysOn());
+        }
+
+        Sampler sampler;
+        switch (config.getName()) {
+            case TracingConfig.Sampler.AlwaysOn:
+                sampler = Sampler.alwaysOn();
+                break;
+            case TracingConfig.Sampler.AlwaysOff:
+                sampler = Sampler.alwaysOff();
+                break;
+            case TracingConfig.Sampler.Ratio:
+                sampler = Sampler.traceIdRatioBased(config.getRatio());
+                break;
+            case TracingConfig.Sampler.RateLimited:
+                sampler = new RateLimitingSampler(config.getRate());
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported sampler " + config.getName());
+        }
+
+        return config.isParentBased() ? Sampler.parentBased(sampler) : sampler;
     }
 
     private static SpanExporter createOtlpExporter(TracingConfig.Exporter exporter) {
@@ -172,33 +305,22 @@ public class OpenTelemetryProvider implements TracingProvider {
 
     @Override
     public void executeWithTracing(HttpRequest httpRequest, Callback callback) throws Exception {
-        Map<String, String> carrier = new HashMap<>();
-        for (String key : httpRequest.getHeaders().keySet()) {
-            carrier.put(key, httpRequest.getHeaders().get(key).get(0));
-        }
-
-        executeWithTracing(carrier, callback);
+        executeWithTracing(propagator.extract(Context.root(), httpRequest, httpRequestGetter), callback);
     }
 
     @Override
     public void executeWithTracing(CloudEvent event, Callback callback) throws Exception {
-        Map<String, String> carrier = new HashMap<>();
-        for (String key : event.getExtensionNames()) {
-            Object obj = event.getExtension(key);
-            carrier.put(key, obj == null ? "" : obj.toString());
-        }
-
-        executeWithTracing(carrier, callback);
+        executeWithTracing(propagator.extract(Context.root(), event, cloudEventGetter), callback);
     }
 
     @Override
     public void executeWithTracing(TopicEvent event, Callback callback) throws Exception {
-        executeWithTracing(new HashMap<>(), callback);
+        executeWithTracing(propagator.extract(Context.root(), event, topicEventGetter), callback);
     }
 
     @Override
     public void executeWithTracing(BindingEvent event, Callback callback) throws Exception {
-        executeWithTracing(new HashMap<>(), callback);
+        executeWithTracing(propagator.extract(Context.root(), event, bindingEventGetter), callback);
     }
 
     @Override
@@ -207,93 +329,97 @@ public class OpenTelemetryProvider implements TracingProvider {
     }
 
     @Override
+    @SuppressWarnings("deprecation")
     public void executeWithTracing(Plugin plugin, Callback callback) throws Exception {
-        Map<String, String> tags = new HashMap<>();
-        tags.put("kind", "Plugin");
-        tags.put("name", plugin.name());
-        tags.put("version", plugin.version());
-        if (plugin.tagsAddToTracing() != null) {
-            tags.putAll(plugin.tagsAddToTracing());
-        }
+        AttributesBuilder attributes = Attributes.builder()
+                .put(KIND, "Plugin")
+                .put(NAME, plugin.name())
+                .put(VERSION, plugin.version());
+        putAll(attributes, plugin.tagsAddToTracing());
 
-        executeWithTracing(plugin.name(), SpanKind.INTERNAL, tags, callback);
+        executeWithTracing(plugin.name(), SpanKind.INTERNAL, attributes.build(), callback);
     }
 
     @Override
     public void executeWithTracing(Hook hook, Callback callback) throws Exception {
-        Map<String, String> tags = new HashMap<>();
-        tags.put("kind", "Hook");
-        tags.put("name", hook.name());
-        tags.put("version", hook.version());
-        if (hook.tagsAddToTracing() != null) {
-            tags.putAll(hook.tagsAddToTracing());
-        }
+        AttributesBuilder attributes = Attributes.builder()
+                .put(KIND, "Hook")
+                .put(NAME, hook.name())
+                .put(VERSION, hook.version());
+        putAll(attributes, hook.tagsAddToTracing());
 
-        executeWithTracing(hook.name(), SpanKind.INTERNAL, tags, callback);
+        executeWithTracing(hook.name(), SpanKind.INTERNAL, attributes.build(), callback);
     }
 
     @Override
     public void executeWithTracing(UserContext ctx, Callback callback) throws Exception {
-        SpanKind kind = SpanKind.SERVER;
-        Map<String, String> tags = new HashMap<>();
-        tags.put("function", ctx.getFunctionClass().getName());
+        Class<?> functionClass = ctx.getFunctionClass();
+        executeWithTracing(functionClass.getSimpleName(), SpanKind.SERVER, functionAttributes.get(functionClass), callback);
+    }
 
-        executeWithTracing(ctx.getFunctionClass().getSimpleName(), kind, tags, callback);
+    @Override
+    public Map<String, String> getTraceContext() {
+        Context context = Context.current();
+        if (!Span.fromContext(context).getSpanContext().isValid()) {
+            return null;
+        }
+
+        Map<String, String> carrier = new HashMap<>(4);
+        propagator.inject(context, carrier, Map::put);
+        return carrier.isEmpty() ? null : carrier;
     }
 
-    private void executeWithTracing(Map<String, String> carrier, Callback callback) throws Exception {
-        TextMapPropagator propagator = GlobalOpenTelemetry.getPropagators().getTextMapPropagator();
-        Context parentContext = propagator.extract(Context.root(), carrier, getter);
-        Tracer tracer = GlobalOpenTelemetry.getTracer(OTEL_LIBRARY_NAME, OTEL_LIBRARY_VERSION);
+    private static void putAll(AttributesBuilder attributes, Map<String, String> tags) {
+        if (tags != null) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                attributes.put(tag.getKey(), tag.getValue());
+            }
+        }
+    }
+
+    private void executeWithTracing(Context parentContext, Callback callback) throws Exception {
         Span span = tracer.spanBuilder(functionName)
                 .setParent(parentContext)
                 .setSpanKind(SpanKind.SERVER)
+                .setAllAttributes(globalAttributes)
                 .startSpan();
 
-        setGlobalAttribute(span);
-        try (Scope ignored = span.makeCurrent()) {
-            endSpan(span, callback.execute());
-        }
+        execute(span, callback);
     }
 
-    private void executeWithTracing(String name, SpanKind kind, Map<String, String> tags, Callback callback) throws
+    private void executeWithTracing(String name, SpanKind kind, Attributes attributes, Callback callback) throws
             Exception {
-        Tracer tracer = GlobalOpenTelemetry.getTracer(OTEL_LIBRARY_NAME, OTEL_LIBRARY_VERSION);
-        Span span = tracer.spanBuilder(name)
+        SpanBuilder builder = tracer.spanBuilder(name)
                 .setSpanKind(kind)
-                .startSpan();
-        span.setAttribute(SemanticAttributes.FAAS_INVOKED_NAME, this.functionName);
-        span.setAttribute(SemanticAttributes.FAAS_INVOKED_PROVIDER, "OpenFunction");
-
-        if (tags != null) {
-            for (String key : tags.keySet()) {
-                span.setAttribute(key, tags.get(key));
-            }
+                .setAllAttributes(globalAttributes);
+        if (attributes != null) {
+            builder.setAllAttributes(attributes);
         }
+        Span span = builder.startSpan();
+        execute(span, callback);
+    }
 
-        setGlobalAttribute(span);
-
+    @SuppressWarnings("try")
+    private static void execute(Span span, Callback callback) throws Exception {
+        Error error;
         try (Scope ignored = span.makeCurrent()) {
-            endSpan(span, callback.execute());
+            error = callback.execute();
+        } catch (Exception | Error e) {
+            // A thrown error ends up in the trace as well, the span is ended either way.
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR, e.getMessage() == null ? e.getClass().getName() : e.getMessage());
+            span.end();
+            throw e;
         }
+
+        endSpan(span, error);
     }
 
-    private void endSpan(Span span, Error error) {
+    private static void endSpan(Span span, Error error) {
         if (error != null) {
             span.setStatus(StatusCode.ERROR, error.getMessage());
         }
 
         span.end();
     }
-
-    private void setGlobalAttribute(Span span) {
-        span.setAttribute(SemanticAttributes.FAAS_INVOKED_NAME, this.functionName);
-        span.setAttribute(SemanticAttributes.FAAS_INVOKED_PROVIDER, "OpenFunction");
-
-        if (tags != null) {
-            for (String key : tags.keySet()) {
-                span.setAttribute(AttributeKey.stringKey(key), tags.get(key));
-            }
-        }
-    }
 }
@@ -0,0 +1,78 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package dev.openfunction.invoker.tracing;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+import java.util.List;
+
+/**
+ * RateLimitingSampler records at most the given number of traces per second, the unused
+ * budget of up to one second is carried over so that short bursts are recorded too.
+ */
+class RateLimitingSampler implements Sampler {
+    private final double rate;
+    private final long nanosPerTrace;
+    private final long maxBalance;
+    // The time at which the budget would be empty, the budget grows back as time passes.
+    private long debit;
+
+    RateLimitingSampler(double rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be positive, got " + rate);
+        }
+
+        this.rate = rate;
+        this.nanosPerTrace = (long) (1_000_000_000L / rate);
+        this.maxBalance = Math.max(nanosPerTrace, 1_000_000_000L);
+        this.debit = System.nanoTime() - maxBalance;
+    }
+
+    @Override
+    public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+                                       Attributes attributes, List<LinkData> parentLinks) {
+        return tryAcquire() ? SamplingResult.recordAndSample() : SamplingResult.drop();
+    }
+
+    private synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        if (now - debit > maxBalance) {
+            debit = now - maxBalance;
+        }
+        if (now - debit < nanosPerTrace) {
+            return false;
+        }
+
+        debit += nanosPerTrace;
+        return true;
+    }
+
+    @Override
+    public String getDescription() {
+        return "RateLimitingSampler{" + rate + "}";
+    }
+
+    @Override
+    public String toString() {
+        return getDescription();
+    }
+}
@@ -31,6 +31,14 @@ public class SkywalkingProvider implements TracingProvider {
      */
 //    private static final int componentIDOpenFunction = 5013;
 
+    // The tags of a function span only depend on the function class.
+    private static final ClassValue<Map<String, String>> functionTags = new ClassValue<>() {
+        @Override
+        protected Map<String, String> computeValue(Class<?> type) {
+            return Collections.singletonMap("function", type.getName());
+        }
+    };
+
     private final String functionName;
     private Map<String, String> tags;
     private final Map<String, String> baggage;
@@ -52,6 +60,12 @@ public class SkywalkingProvider implements TracingProvider {
         baggage = config.getBaggage();
     }
 
+    @Override
+    public Map<String, String> getTraceContext() {
+        // The skywalking agent propagates the context of the gRPC calls to the sidecar itself.
+        return null;
+    }
+
     @Override
     public void executeWithTracing(HttpRequest httpRequest, Callback callback) throws Exception {
         Map<String, String> carrier = new HashMap<>();
@@ -116,11 +130,17 @@ public class SkywalkingProvider implements TracingProvider {
             }
         }
 
-        Error err = callback.execute();
-        if (err != null) {
-            ActiveSpan.error(err);
+        try {
+            Error err = callback.execute();
+            if (err != null) {
+                ActiveSpan.error(err);
+            }
+        } catch (Exception | Error e) {
+            ActiveSpan.error(e);
+            throw e;
+        } finally {
+            Tracer.stopSpan();
         }
-        Tracer.stopSpan();
     }
 
     @Override
@@ -129,6 +149,7 @@ public class SkywalkingProvider implements TracingProvider {
     }
 
     @Override
+    @SuppressWarnings("deprecation")
     public void executeWithTracing(Plugin plugin, Callback callback) throws Exception {
         Map<String, String> tags = new HashMap<>();
         tags.put("kind", "Plugin");
@@ -156,10 +177,8 @@ public class SkywalkingProvider implements TracingProvider {
 
     @Override
     public void executeWithTracing(UserContext ctx, Callback callback) throws Exception {
-        Map<String, String> tags = new HashMap<>();
-        tags.put("function", ctx.getFunctionClass().getName());
-
-        executeWithTracing(ctx.getFunctionClass().getSimpleName(), tags, callback);
+        Class<?> functionClass = ctx.getFunctionClass();
+        executeWithTracing(functionClass.getSimpleName(), functionTags.get(functionClass), callback);
     }
 
     private void executeWithTracing(String name, Map<String, String> tags, Callback callback) throws Exception {
@@ -171,11 +190,17 @@ public class SkywalkingProvider implements TracingProvider {
             }
         }
 
-        Error err = callback.execute();
-        if (err != null) {
-            ActiveSpan.error(err);
+        try {
+            Error err = callback.execute();
+            if (err != null) {
+                ActiveSpan.error(err);
+            }
+        } catch (Exception | Error e) {
+            // A thrown error ends up in the trace as well.
+            ActiveSpan.error(e);
+            throw e;
+        } finally {
+            Tracer.stopSpan();
         }
-
-        Tracer.stopSpan();
     }
 }
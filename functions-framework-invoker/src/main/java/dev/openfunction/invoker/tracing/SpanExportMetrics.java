@@ -0,0 +1,171 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package dev.openfunction.invoker.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.MetricDataType;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SpanExportMetrics counts the spans handed to the exporter, and reads the queue size and the dropped spans
+ * from the metrics the BatchSpanProcessor records on the meter provider it is given.
+ */
+class SpanExportMetrics implements TracingMXBean {
+    // The names the BatchSpanProcessor records its metrics with.
+    private static final String PROCESSED_SPANS = "processedSpans";
+    private static final String QUEUE_SIZE = "queueSize";
+    private static final AttributeKey<Boolean> DROPPED = AttributeKey.booleanKey("dropped");
+
+    private final int maxQueueSize;
+    private final SdkMeterProvider meterProvider;
+    private final AtomicLong exported = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // The values of the last collection.
+    private volatile long dropped;
+    private volatile long queued;
+
+    SpanExportMetrics(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+        // The metrics are collected when they are read, the interval only bounds how stale they may get.
+        this.meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(PeriodicMetricReader.builder(new Reader()).setInterval(1, TimeUnit.MINUTES).build())
+                .build();
+    }
+
+    /**
+     * @return the meter provider to build the BatchSpanProcessor with
+     */
+    MeterProvider getMeterProvider() {
+        return meterProvider;
+    }
+
+    /**
+     * wrap returns an exporter that counts the spans exported by the given exporter.
+     *
+     * @param exporter SpanExporter
+     * @return SpanExporter
+     */
+    SpanExporter wrap(SpanExporter exporter) {
+        return new SpanExporter() {
+            @Override
+            public CompletableResultCode export(Collection<SpanData> spans) {
+                int size = spans.size();
+                CompletableResultCode result = exporter.export(spans);
+                result.whenComplete(() -> (result.isSuccess() ? exported : failed).addAndGet(size));
+                return result;
+            }
+
+            @Override
+            public CompletableResultCode flush() {
+                return exporter.flush();
+            }
+
+            @Override
+            public CompletableResultCode shutdown() {
+                meterProvider.shutdown();
+                return exporter.shutdown();
+            }
+
+            @Override
+            public String toString() {
+                return exporter.toString();
+            }
+        };
+    }
+
+    private void collect() {
+        meterProvider.forceFlush().join(1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    @Override
+    public long getQueuedSpans() {
+        collect();
+        return queued;
+    }
+
+    @Override
+    public long getExportedSpans() {
+        return exported.get();
+    }
+
+    @Override
+    public long getFailedSpans() {
+        return failed.get();
+    }
+
+    @Override
+    public long getDroppedSpans() {
+        collect();
+        return dropped;
+    }
+
+    private class Reader implements MetricExporter {
+        @Override
+        public CompletableResultCode export(Collection<MetricData> metrics) {
+            for (MetricData metric : metrics) {
+                if (PROCESSED_SPANS.equals(metric.getName()) && metric.getType() == MetricDataType.LONG_SUM) {
+                    for (LongPointData point : metric.getLongSumData().getPoints()) {
+                        if (Boolean.TRUE.equals(point.getAttributes().get(DROPPED))) {
+                            dropped = point.getValue();
+                        }
+                    }
+                } else if (QUEUE_SIZE.equals(metric.getName()) && metric.getType() == MetricDataType.LONG_GAUGE) {
+                    for (LongPointData point : metric.getLongGaugeData().getPoints()) {
+                        queued = point.getValue();
+                    }
+                }
+            }
+
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+            return AggregationTemporality.CUMULATIVE;
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package dev.openfunction.invoker.tracing;
+
+/**
+ * Metrics of the spans exported by the opentelemetry provider.
+ */
+public interface TracingMXBean {
+    /**
+     * @return the maximum number of spans waiting to be exported
+     */
+    int getMaxQueueSize();
+
+    /**
+     * @return the number of spans waiting to be exported
+     */
+    long getQueuedSpans();
+
+    /**
+     * @return the number of spans accepted by the exporter
+     */
+    long getExportedSpans();
+
+    /**
+     * @return the number of spans the exporter failed to export
+     */
+    long getFailedSpans();
+
+    /**
+     * @return the number of spans dropped because the queue was full
+     */
+    long getDroppedSpans();
+}
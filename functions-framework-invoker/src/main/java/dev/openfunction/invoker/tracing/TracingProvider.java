@@ -18,9 +18,17 @@ public interface TracingProvider {
 
     void executeWithTracing(Callback callback)throws Exception;
 
+    @SuppressWarnings("deprecation")
     void executeWithTracing(Plugin plugin, Callback callback)throws Exception;
 
     void executeWithTracing(Hook hook, Callback callback)throws Exception;
 
     void executeWithTracing(UserContext ctx, Callback callback)throws Exception;
+
+    /**
+     * getTraceContext returns the headers propagating the current trace context to the sidecar.
+     *
+     * @return the headers, null if there is nothing to propagate
+     */
+    Map<String, String> getTraceContext();
 }
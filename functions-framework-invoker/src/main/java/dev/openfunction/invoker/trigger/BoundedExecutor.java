@@ -0,0 +1,100 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package dev.openfunction.invoker.trigger;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An executor that runs at most {@code maxConcurrency} tasks at the same time and lets at most
+ * {@code queueSize} tasks wait for a free slot. Tasks beyond that are rejected immediately with a
+ * {@link RejectedExecutionException} instead of piling up, so the caller can push back.
+ */
+final class BoundedExecutor implements Executor {
+    private final Executor delegate;
+    private final int maxConcurrency;
+    private final int queueSize;
+
+    /**
+     * Permits for the tasks either running or waiting.
+     */
+    private final Semaphore admitted;
+    /**
+     * Permits for the running tasks.
+     */
+    private final Semaphore running;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    BoundedExecutor(Executor delegate, int maxConcurrency, int queueSize) {
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.queueSize = queueSize;
+        this.admitted = new Semaphore(maxConcurrency + queueSize);
+        this.running = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!admitted.tryAcquire()) {
+            rejected.increment();
+            throw new RejectedExecutionException("too many events in flight, max concurrency " + maxConcurrency + ", queue size " + queueSize);
+        }
+
+        try {
+            delegate.execute(() -> {
+                try {
+                    running.acquireUninterruptibly();
+                    active.incrementAndGet();
+                    try {
+                        task.run();
+                    } finally {
+                        active.decrementAndGet();
+                        running.release();
+                    }
+                } finally {
+                    admitted.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admitted.release();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    int getActive() {
+        return active.get();
+    }
+
+    int getQueued() {
+        return Math.max(0, maxConcurrency + queueSize - admitted.availablePermits() - active.get());
+    }
+
+    long getRejected() {
+        return rejected.sum();
+    }
+}
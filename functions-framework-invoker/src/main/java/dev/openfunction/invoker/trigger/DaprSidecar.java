@@ -0,0 +1,120 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package dev.openfunction.invoker.trigger;
+
+import dev.openfunction.invoker.context.RuntimeContext;
+import dev.openfunction.invoker.metrics.StartupProfile;
+import dev.openfunction.invoker.output.OutputSender;
+import io.dapr.client.DaprClient;
+import io.dapr.client.DaprClientBuilder;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * DaprSidecar holds the dapr client and the output sender shared by all triggers, and waits for the sidecar
+ * to be ready only once however many triggers need it.
+ */
+public final class DaprSidecar implements Closeable {
+    private static final Logger logger = Logger.getLogger("dev.openfunction.invoker");
+
+    private final DaprClient daprClient;
+    private final OutputSender outputSender;
+
+    private final AtomicBoolean waiting = new AtomicBoolean();
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    public DaprSidecar(RuntimeContext runtimeContext) {
+        daprClient = new DaprClientBuilder().build();
+        outputSender = new OutputSender(daprClient, runtimeContext.getOutputOptions());
+    }
+
+    public DaprClient getDaprClient() {
+        return daprClient;
+    }
+
+    public OutputSender getOutputSender() {
+        return outputSender;
+    }
+
+    /**
+     * startWaiting waits for the sidecar in the background, so that the function is initialized in the meantime.
+     */
+    public void startWaiting() {
+        Thread waiter = new Thread(this::awaitReady, "dapr-sidecar-wait");
+        waiter.setDaemon(true);
+        waiter.start();
+    }
+
+    /**
+     * skipWaiting considers the sidecar ready without waiting for it, for the training runs that have no sidecar.
+     * The calls to the sidecar fail.
+     */
+    public void skipWaiting() {
+        if (waiting.compareAndSet(false, true)) {
+            ready.complete(null);
+        }
+    }
+
+    /**
+     * awaitReady blocks until the sidecar is ready. The first caller waits for the sidecar, the others wait
+     * for the first caller. When the sidecar is not ready in time the triggers start anyway, the calls to
+     * the sidecar fail until it is.
+     */
+    public void awaitReady() {
+        if (waiting.compareAndSet(false, true)) {
+            StartupProfile.Phase phase = StartupProfile.begin("wait dapr sidecar");
+            try {
+                daprClient.waitForSidecar(Trigger.WaitDaprSidecarTimeout)
+                        .block(Duration.ofMillis(Trigger.WaitDaprSidecarTimeout * 2L));
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "dapr sidecar is not ready after " + Trigger.WaitDaprSidecarTimeout + "ms, " + e.getMessage());
+            } finally {
+                phase.end();
+                ready.complete(null);
+            }
+        }
+
+        ready.join();
+    }
+
+    /**
+     * Delivers the queued outputs and closes the dapr client, waits up to the flush timeout of the outputs.
+     */
+    @Override
+    public void close() {
+        close(outputSender.getOptions().getFlushTimeout());
+    }
+
+    /**
+     * Delivers the queued outputs and closes the dapr client.
+     *
+     * @param timeout the maximum time to wait for the outputs in milliseconds
+     */
+    public void close(long timeout) {
+        outputSender.close(timeout);
+        try {
+            daprClient.close();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "close dapr client error, " + e.getMessage());
+        }
+    }
+}
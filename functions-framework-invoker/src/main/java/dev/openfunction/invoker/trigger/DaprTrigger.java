@@ -16,23 +16,38 @@ limitations under the License.
 
 package dev.openfunction.invoker.trigger;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
 import com.google.protobuf.Value;
 import dev.openfunction.functions.BindingEvent;
 import dev.openfunction.functions.Component;
 import dev.openfunction.functions.OpenFunction;
+import dev.openfunction.functions.Out;
 import dev.openfunction.functions.TopicEvent;
+import dev.openfunction.invoker.context.DaprOptions;
+import dev.openfunction.invoker.context.ExecutorConfig;
 import dev.openfunction.invoker.context.RuntimeContext;
 import dev.openfunction.invoker.context.UserContext;
+import dev.openfunction.invoker.metrics.MetricsRegistry;
+import dev.openfunction.invoker.metrics.StartupProfile;
+import dev.openfunction.invoker.output.OutputSender;
 import io.dapr.client.DaprClient;
-import io.dapr.client.DaprClientBuilder;
 import io.dapr.v1.AppCallbackGrpc;
 import io.dapr.v1.DaprAppCallbackProtos;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
 import org.apache.commons.collections.MapUtils;
+import org.eclipse.jetty.util.VirtualThreads;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -42,12 +57,31 @@ import java.util.logging.Logger;
 public final class DaprTrigger implements Trigger {
     private static final Logger logger = Logger.getLogger("dev.openfunction.invoker");
 
+    // The time a training event may take, in milliseconds.
+    private static final long TrainingTimeout = 60000;
+
     private final RuntimeContext runtimeContext;
 
     private final ArrayList<OpenFunction> functions;
 
     private final Service service;
 
+    private final DaprOptions options;
+
+    /**
+     * Executes the functions concurrently when the parallel dispatch is enabled, null otherwise.
+     */
+    private final ExecutorService functionExecutor;
+
+    /**
+     * Bounds the events in flight when an executor is configured, null otherwise.
+     */
+    private final BoundedExecutor eventExecutor;
+
+    private ExecutorService eventPool;
+
+    private boolean virtualThreads;
+
     public DaprTrigger(RuntimeContext runtimeContext, Class<?>[] functionClasses) {
         this.runtimeContext = runtimeContext;
 
@@ -65,46 +99,253 @@ public final class DaprTrigger implements Trigger {
             }
         }
 
+        options = runtimeContext.getDaprOptions();
+        if (options.isParallel() && functions.size() > 1) {
+            int parallelism = options.getMaxParallelism() > 0 ? options.getMaxParallelism() : Runtime.getRuntime().availableProcessors();
+            AtomicInteger seq = new AtomicInteger();
+            // The queue holds the functions of as many events as there are threads. A function that overruns
+            // the timeout and ignores the interrupt keeps its thread, the events are then rejected instead
+            // of piling up behind it.
+            ExecutorService executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(parallelism * functions.size()), r -> {
+                Thread t = new Thread(r, "dapr-function-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            // Carry the tracing context of the event to the threads executing the functions.
+            functionExecutor = io.opentelemetry.context.Context.taskWrapping(executor);
+        } else {
+            functionExecutor = null;
+        }
+
+        eventExecutor = createEventExecutor(options.getExecutor());
+
         service = new Service();
     }
 
+    private BoundedExecutor createEventExecutor(ExecutorConfig config) {
+        if (config == null) {
+            return null;
+        }
+
+        int maxConcurrency = config.getMaxThreads() > 0 ? config.getMaxThreads() : Runtime.getRuntime().availableProcessors();
+        // As for the http trigger, 0 means the events waiting for a thread are not bounded.
+        int queueSize = config.getQueueSize() > 0 ? config.getQueueSize() : Integer.MAX_VALUE - maxConcurrency;
+        Executor executor;
+        if (config.isVirtual() && VirtualThreads.areSupported()) {
+            virtualThreads = true;
+            executor = VirtualThreads.getDefaultVirtualThreadsExecutor();
+        } else {
+            if (config.isVirtual()) {
+                logger.log(Level.WARNING, "virtual threads are not supported by this JVM, fall back to " + maxConcurrency + " platform threads");
+            }
+            AtomicInteger seq = new AtomicInteger();
+            eventPool = Executors.newFixedThreadPool(maxConcurrency, r -> {
+                Thread t = new Thread(r, "dapr-trigger-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            executor = eventPool;
+        }
+
+        return new BoundedExecutor(executor, maxConcurrency, queueSize);
+    }
+
+    /**
+     * Executes the event handler, on the event executor if there is one.
+     *
+     * @param handler  executes the functions and completes the call
+     * @param rejected completes the call when there are too many events in flight
+     */
+    private void dispatch(Runnable handler, Runnable rejected) {
+        if (eventExecutor == null) {
+            handler.run();
+            return;
+        }
+
+        try {
+            eventExecutor.execute(handler);
+        } catch (RejectedExecutionException e) {
+            logger.log(Level.FINE, e.getMessage());
+            rejected.run();
+        }
+    }
+
     @Override
-    public void start() throws Exception {
+    public void start(DaprSidecar sidecar) throws Exception {
         if (MapUtils.isEmpty(runtimeContext.getDaprTrigger())) {
             throw new Error("no dapr trigger defined for the function");
         }
+        if (sidecar == null) {
+            throw new Error("the dapr trigger needs a dapr sidecar");
+        }
 
-        this.service.start(runtimeContext.getPort());
+        this.service.start(getPort(), sidecar);
+    }
+
+    @Override
+    public void train() throws Exception {
+        ManagedChannel channel = ManagedChannelBuilder.forAddress("127.0.0.1", getPort()).usePlaintext().build();
+        try {
+            AppCallbackGrpc.AppCallbackBlockingStub stub = AppCallbackGrpc.newBlockingStub(channel)
+                    .withDeadlineAfter(TrainingTimeout, TimeUnit.MILLISECONDS);
+            stub.listInputBindings(Empty.getDefaultInstance());
+            stub.listTopicSubscriptions(Empty.getDefaultInstance());
+
+            ByteString data = ByteString.copyFromUtf8("{}");
+            for (Component component : runtimeContext.getDaprTrigger().values()) {
+                try {
+                    if (component.isBinding()) {
+                        stub.onBindingEvent(DaprAppCallbackProtos.BindingEventRequest.newBuilder()
+                                .setName(component.getComponentName())
+                                .setData(data)
+                                .build());
+                    } else if (component.isPubsub()) {
+                        stub.onTopicEvent(DaprAppCallbackProtos.TopicEventRequest.newBuilder()
+                                .setPubsubName(component.getComponentName())
+                                .setTopic(component.getTopic())
+                                .setId("training")
+                                .setSource("openfunction")
+                                .setType("dev.openfunction.training")
+                                .setSpecVersion("1.0")
+                                .setDataContentType("application/json")
+                                .setData(data)
+                                .build());
+                    } else {
+                        continue;
+                    }
+                    logger.log(Level.INFO, "training event for " + component.getComponentName() + " done");
+                } catch (StatusRuntimeException e) {
+                    logger.log(Level.INFO, "training event for " + component.getComponentName() + " failed, " + e.getStatus());
+                }
+            }
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    private int getPort() {
+        return runtimeContext.getDaprPort();
+    }
+
+    @Override
+    public void drain() {
+        service.drain();
+    }
+
+    @Override
+    public boolean awaitDrained(long timeout) throws InterruptedException {
+        return service.awaitDrained(timeout);
     }
 
     @Override
     public void close() {
+        service.stop();
+        if (functionExecutor != null) {
+            functionExecutor.shutdown();
+        }
+        if (eventPool != null) {
+            eventPool.shutdown();
+        }
+    }
 
+    /**
+     * Executes all functions with the payload, each function gets its own context.
+     * In parallel mode the total latency is the one of the slowest function instead of the sum of all functions.
+     */
+    private void executeFunctions(Supplier<UserContext> contexts, String payload) throws Exception {
+        if (functionExecutor == null) {
+            for (OpenFunction function : functions) {
+                contexts.get().executeFunction(function, payload);
+            }
+            return;
+        }
+
+        List<String> failures = new ArrayList<>();
+        List<Future<Out>> futures = new ArrayList<>(functions.size());
+        for (OpenFunction function : functions) {
+            try {
+                futures.add(functionExecutor.submit(() -> {
+                    UserContext ctx = contexts.get();
+                    ctx.executeFunction(function, payload);
+                    return ctx.getOut();
+                }));
+            } catch (RejectedExecutionException e) {
+                logger.log(Level.WARNING, "function executor saturated, " + function.getClass().getName() + " is not executed");
+                futures.add(null);
+                failures.add(function.getClass().getName() + ": function executor saturated");
+            }
+        }
+
+        long timeout = options.getFunctionTimeout();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (int i = 0; i < futures.size(); i++) {
+            Future<Out> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            String name = functions.get(i).getClass().getName();
+            try {
+                Out out = timeout > 0 ? future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS) : future.get();
+                // A returned error fails the event just like a thrown one.
+                if (out != null && out.getError() != null) {
+                    failures.add(name + ": " + out.getError());
+                }
+            } catch (ExecutionException e) {
+                failures.add(name + ": " + e.getCause());
+            } catch (TimeoutException e) {
+                // Only interrupts the function, one that does not stop on interrupt goes on in the background.
+                future.cancel(true);
+                failures.add(name + ": timed out after " + timeout + "ms");
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new Exception("execute functions failed, " + String.join("; ", failures));
+        }
     }
 
     private class Service extends AppCallbackGrpc.AppCallbackImplBase {
 
         private Server daprServer;
         private DaprClient daprClient;
+        private OutputSender outputSender;
+
+        public void start(int port, DaprSidecar sidecar) throws Exception {
+            ServerBuilder<?> builder = ServerBuilder.forPort(port).addService(Service.this);
+            if (eventExecutor != null) {
+                // The callbacks only hand the events over to the event executor,
+                // so there is no need for a gRPC thread pool.
+                builder.directExecutor();
+                MetricsRegistry.register("DaprTrigger", new Metrics());
+            }
+            daprClient = sidecar.getDaprClient();
+            outputSender = sidecar.getOutputSender();
+            StartupProfile.Phase phase = StartupProfile.begin("start grpc server");
+            daprServer = builder.build().start();
+            phase.end();
 
-        public void start(int port) throws Exception {
-            daprServer = ServerBuilder
-                    .forPort(port)
-                    .addService(Service.this)
-                    .build()
-                    .start();
+            sidecar.awaitReady();
+        }
 
-            daprClient = new DaprClientBuilder().build();
-            daprClient.waitForSidecar(WaitDaprSidecarTimeout);
+        /**
+         * The server refuses new calls, so dapr redelivers the events to another instance,
+         * while the calls in flight complete.
+         */
+        public void drain() {
+            if (daprServer != null) {
+                daprServer.shutdown();
+            }
+        }
 
-            // Now we handle ctrl+c (or any other JVM shutdown)
-            java.lang.Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                        daprClient.shutdown();
-                        daprServer.shutdown();
-                    })
-            );
+        public boolean awaitDrained(long timeout) throws InterruptedException {
+            return daprServer == null || daprServer.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+        }
 
-            daprServer.awaitTermination();
+        public void stop() {
+            if (daprServer != null) {
+                daprServer.shutdownNow();
+            }
         }
 
         @Override
@@ -128,23 +369,38 @@ public final class DaprTrigger implements Trigger {
                                    StreamObserver<DaprAppCallbackProtos.BindingEventResponse> responseObserver) {
             BindingEvent event = new BindingEvent(request.getName(), request.getMetadataMap(), request.getData().asReadOnlyByteBuffer());
 
-            try {
-                runtimeContext.executeWithTracing(event, () -> {
-                            for (OpenFunction function : functions) {
-                                new UserContext(runtimeContext, daprClient).
-                                        withBindingEvent(event).
-                                        executeFunction(function, request.getData().toStringUtf8());
-                            }
-                            responseObserver.onNext(DaprAppCallbackProtos.BindingEventResponse.getDefaultInstance());
-                            responseObserver.onCompleted();
+            dispatch(() -> {
+                try {
+                    if (!runtimeContext.isTracingEnabled()) {
+                        handleBindingEvent(event, request, responseObserver);
+                    } else {
+                        runtimeContext.executeWithTracing(event, () -> {
+                            handleBindingEvent(event, request, responseObserver);
                             return null;
-                        }
-                );
-            } catch (Exception e) {
-                logger.log(Level.INFO, "catch exception when execute function " + runtimeContext.getName());
-                e.printStackTrace();
-                responseObserver.onError(e);
-            }
+                        });
+                    }
+                } catch (Exception e) {
+                    logger.log(Level.INFO, "catch exception when execute function " + runtimeContext.getName());
+                    e.printStackTrace();
+                    responseObserver.onError(e);
+                }
+            }, () -> responseObserver.onError(Status.RESOURCE_EXHAUSTED.withDescription("too many events in flight").asRuntimeException()));
+        }
+
+        private void handleBindingEvent(BindingEvent event, DaprAppCallbackProtos.BindingEventRequest request,
+                                        StreamObserver<DaprAppCallbackProtos.BindingEventResponse> responseObserver) throws Exception {
+            executeFunctions(() -> new UserContext(runtimeContext, daprClient, outputSender).withBindingEvent(event),
+                    request.getData().toStringUtf8());
+            responseObserver.onNext(DaprAppCallbackProtos.BindingEventResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+
+        private void handleTopicEvent(TopicEvent event, DaprAppCallbackProtos.TopicEventRequest request,
+                                      StreamObserver<DaprAppCallbackProtos.TopicEventResponse> responseObserver) throws Exception {
+            executeFunctions(() -> new UserContext(runtimeContext, daprClient, outputSender).withTopicEvent(event),
+                    request.getData().toStringUtf8());
+            responseObserver.onNext(DaprAppCallbackProtos.TopicEventResponse.getDefaultInstance());
+            responseObserver.onCompleted();
         }
 
         @Override
@@ -174,23 +430,55 @@ public final class DaprTrigger implements Trigger {
                     request.getData().asReadOnlyByteBuffer(),
                     getExtensions(request));
 
-            try {
-                runtimeContext.executeWithTracing(event, () -> {
-                            for (OpenFunction function : functions) {
-                                new UserContext(runtimeContext, daprClient).
-                                        withTopicEvent(event).
-                                        executeFunction(function, request.getData().toStringUtf8());
-                            }
-                            responseObserver.onNext(DaprAppCallbackProtos.TopicEventResponse.getDefaultInstance());
-                            responseObserver.onCompleted();
+            dispatch(() -> {
+                try {
+                    if (!runtimeContext.isTracingEnabled()) {
+                        handleTopicEvent(event, request, responseObserver);
+                    } else {
+                        runtimeContext.executeWithTracing(event, () -> {
+                            handleTopicEvent(event, request, responseObserver);
                             return null;
-                        }
-                );
-            } catch (Exception e) {
-                logger.log(Level.INFO, "catch exception when execute function " + runtimeContext.getName());
-                e.printStackTrace();
-                responseObserver.onError(e);
-            }
+                        });
+                    }
+                } catch (Exception e) {
+                    logger.log(Level.INFO, "catch exception when execute function " + runtimeContext.getName());
+                    e.printStackTrace();
+                    responseObserver.onError(e);
+                }
+            }, () -> {
+                // Ask dapr to redeliver the event later.
+                responseObserver.onNext(DaprAppCallbackProtos.TopicEventResponse.newBuilder().
+                        setStatus(DaprAppCallbackProtos.TopicEventResponse.TopicEventResponseStatus.RETRY).
+                        build());
+                responseObserver.onCompleted();
+            });
+        }
+    }
+
+    private class Metrics implements DaprTriggerMXBean {
+        @Override
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        @Override
+        public int getMaxConcurrency() {
+            return eventExecutor.getMaxConcurrency();
+        }
+
+        @Override
+        public int getActiveEvents() {
+            return eventExecutor.getActive();
+        }
+
+        @Override
+        public int getQueuedEvents() {
+            return eventExecutor.getQueued();
+        }
+
+        @Override
+        public long getRejectedEvents() {
+            return eventExecutor.getRejected();
         }
     }
 
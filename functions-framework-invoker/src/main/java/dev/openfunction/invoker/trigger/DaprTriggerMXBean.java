@@ -0,0 +1,48 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package dev.openfunction.invoker.trigger;
+
+/**
+ * Metrics of the events dispatched by the dapr trigger.
+ */
+public interface DaprTriggerMXBean {
+    /**
+     * @return whether events are executed on virtual threads
+     */
+    boolean isVirtualThreads();
+
+    /**
+     * @return the maximum number of events executed at the same time
+     */
+    int getMaxConcurrency();
+
+    /**
+     * @return the number of events being executed
+     */
+    int getActiveEvents();
+
+    /**
+     * @return the number of events waiting to be executed
+     */
+    int getQueuedEvents();
+
+    /**
+     * @return the number of events returned to dapr to be redelivered later
+     */
+    long getRejectedEvents();
+}
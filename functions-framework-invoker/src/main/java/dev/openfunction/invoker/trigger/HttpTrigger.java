@@ -20,25 +20,42 @@ import dev.openfunction.functions.CloudEventFunction;
 import dev.openfunction.functions.HttpFunction;
 import dev.openfunction.functions.OpenFunction;
 import dev.openfunction.functions.Routable;
+import dev.openfunction.functions.StreamingOpenFunction;
+import dev.openfunction.invoker.context.ExecutorConfig;
 import dev.openfunction.invoker.context.RuntimeContext;
 import dev.openfunction.invoker.context.UserContext;
+import dev.openfunction.invoker.http.BodyTooLargeException;
 import dev.openfunction.invoker.http.HttpRequestImpl;
 import dev.openfunction.invoker.http.HttpResponseImpl;
+import dev.openfunction.invoker.metrics.MetricsRegistry;
+import dev.openfunction.invoker.metrics.StartupProfile;
+import dev.openfunction.invoker.output.OutputSender;
 import io.cloudevents.CloudEvent;
-import io.cloudevents.core.message.MessageReader;
-import io.cloudevents.http.HttpMessageFactory;
 import io.dapr.client.DaprClient;
-import io.dapr.client.DaprClientBuilder;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,24 +63,46 @@ import java.util.logging.Logger;
  * Executes the user's synchronize method.
  */
 public class HttpTrigger extends HttpServlet implements Trigger {
+    private static final long serialVersionUID = 1L;
+
     private static final Logger logger = Logger.getLogger("dev.openfunction..invoker");
 
+    private static final long DrainPollInterval = 10;
+
     private final Class<?>[] functionClasses;
 
     private final RuntimeContext runtimeContext;
 
     private DaprClient daprClient;
 
+    private OutputSender outputSender;
+
+    private QueuedThreadPool threadPool;
+
+    private Server server;
+
+    private final List<String> paths = new ArrayList<>();
+
+    private final LongAdder activeRequests = new LongAdder();
+
+    // Requests are served once the function and the sidecar are ready, and until the trigger drains.
+    private volatile boolean serving = true;
+    private volatile boolean drained;
+
     public HttpTrigger(RuntimeContext runtimeContext, Class<?>[] functionClasses) {
         this.runtimeContext = runtimeContext;
         this.functionClasses = functionClasses;
     }
 
     @Override
-    public void start() throws Exception {
+    public void start(DaprSidecar sidecar) throws Exception {
+        serving = false;
         if (runtimeContext.needToCreateDaprClient()) {
-            daprClient = new DaprClientBuilder().build();
-            daprClient.waitForSidecar(Trigger.WaitDaprSidecarTimeout);
+            if (sidecar == null) {
+                throw new Error("the function uses dapr but no dapr sidecar is given");
+            }
+            daprClient = sidecar.getDaprClient();
+            outputSender = sidecar.getOutputSender();
         }
 
         ServletContextHandler handler = new ServletContextHandler();
@@ -88,23 +127,253 @@ public class HttpTrigger extends HttpServlet implements Trigger {
                 path = ((Routable) function).getPath();
             }
             handler.addServlet(new ServletHolder(new OpenFunctionServlet(function)), path);
+            paths.add(path);
         }
 
-        Server server = new Server(runtimeContext.getPort());
-        server.setHandler(handler);
+        StartupProfile.Phase phase = StartupProfile.begin("start jetty");
+        threadPool = createThreadPool(runtimeContext.getHttpExecutor());
+        server = new Server(threadPool);
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(runtimeContext.getPort());
+        server.addConnector(connector);
+        // Stopping the server waits for the responses still being written, once the requests are drained.
+        StatisticsHandler statistics = new StatisticsHandler();
+        statistics.setHandler(handler);
+        server.setHandler(statistics);
+        server.setStopTimeout(runtimeContext.getShutdownTimeout());
+        MetricsRegistry.register("HttpTrigger", new Metrics());
         server.start();
-        server.join();
+        phase.end();
+
+        // The listener is bound while the sidecar boots, requests are answered with 503 until it is ready.
+        if (daprClient != null) {
+            sidecar.awaitReady();
+        }
+        serving = true;
+        // Stays off if the function was stopped while waiting for the sidecar.
+        if (drained) {
+            serving = false;
+        }
+    }
+
+    @Override
+    public void train() throws Exception {
+        for (String path : paths) {
+            String target = path.endsWith("*") ? path.substring(0, path.length() - 1) : path;
+            URL url = new URL("http", "127.0.0.1", runtimeContext.getPort(), target.startsWith("/") ? target : "/" + target);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            try {
+                connection.setRequestMethod(HttpMethod.POST.asString());
+                connection.setDoOutput(true);
+                // A binary mode cloud event, so that cloud event functions are called as well.
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setRequestProperty("ce-specversion", "1.0");
+                connection.setRequestProperty("ce-id", "training");
+                connection.setRequestProperty("ce-source", "openfunction");
+                connection.setRequestProperty("ce-type", "dev.openfunction.training");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write("{}".getBytes(StandardCharsets.UTF_8));
+                }
+                logger.log(Level.INFO, "training request to " + url + " returned " + connection.getResponseCode());
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+
+    @Override
+    public void drain() {
+        drained = true;
+        serving = false;
+    }
+
+    @Override
+    public boolean awaitDrained(long timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (activeRequests.sum() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(DrainPollInterval);
+        }
+
+        return true;
     }
 
     @Override
     public void close() {
+        if (server != null) {
+            try {
+                server.stop();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "stop http server error, " + e.getMessage());
+            }
+        }
+    }
+
+    private static QueuedThreadPool createThreadPool(ExecutorConfig config) {
+        if (config == null) {
+            return new QueuedThreadPool();
+        }
+
+        int maxThreads = config.getMaxThreads() > 0 ? config.getMaxThreads() : 200;
+        int minThreads = config.getMinThreads() > 0 ? Math.min(config.getMinThreads(), maxThreads) : Math.min(8, maxThreads);
+        QueuedThreadPool pool;
+        if (config.getQueueSize() > 0) {
+            pool = new QueuedThreadPool(maxThreads, minThreads, 60000, new BlockingArrayQueue<>(config.getQueueSize()));
+        } else {
+            pool = new QueuedThreadPool(maxThreads, minThreads);
+        }
+        pool.setName("http-trigger");
+
+        if (config.isVirtual()) {
+            if (VirtualThreads.areSupported()) {
+                // Jetty keeps the selectors on platform threads and dispatches the servlet to a virtual thread,
+                // so a function blocked on the dapr sidecar does not hold a pool thread.
+                pool.setVirtualThreadsExecutor(VirtualThreads.getDefaultVirtualThreadsExecutor());
+            } else {
+                logger.log(Level.WARNING, "virtual threads are not supported by this JVM, fall back to " + maxThreads + " platform threads");
+            }
+        }
+
+        return pool;
+    }
+
+    private class Metrics implements HttpTriggerMXBean {
+        @Override
+        public boolean isVirtualThreads() {
+            return VirtualThreads.isUseVirtualThreads(threadPool);
+        }
+
+        @Override
+        public long getActiveRequests() {
+            return activeRequests.sum();
+        }
+
+        @Override
+        public int getThreads() {
+            return threadPool.getThreads();
+        }
+
+        @Override
+        public int getBusyThreads() {
+            return threadPool.getBusyThreads();
+        }
+
+        @Override
+        public int getIdleThreads() {
+            return threadPool.getIdleThreads();
+        }
+
+        @Override
+        public int getMaxThreads() {
+            return threadPool.getMaxThreads();
+        }
+
+        @Override
+        public int getQueueSize() {
+            return threadPool.getQueueSize();
+        }
+    }
+
+    /**
+     * Invokes a function of a specific kind with the context of a request.
+     */
+    private interface FunctionInvoker {
+        void invoke(UserContext userContext, HttpRequestImpl reqImpl) throws Exception;
     }
 
     class OpenFunctionServlet extends HttpServlet {
-        private final Object function;
+        private static final long serialVersionUID = 1L;
+
+        // The kind of the function and the methods it accepts are resolved once, when the servlet is created.
+        private final FunctionInvoker invoker;
+
+        // Null when the function accepts all methods.
+        private final EnumSet<HttpMethod> methods;
 
         public OpenFunctionServlet(Object function) {
-            this.function = function;
+            this.invoker = createInvoker(function);
+            this.methods = function instanceof Routable ? resolveMethods((Routable) function) : null;
+        }
+
+        private FunctionInvoker createInvoker(Object function) {
+            if (function instanceof HttpFunction) {
+                HttpFunction httpFunction = (HttpFunction) function;
+                return withRequestTracing((userContext, reqImpl) -> userContext.executeFunction(httpFunction));
+            } else if (function instanceof CloudEventFunction) {
+                CloudEventFunction cloudEventFunction = (CloudEventFunction) function;
+                if (!runtimeContext.isTracingEnabled()) {
+                    return (userContext, reqImpl) -> userContext.executeFunction(cloudEventFunction, reqImpl.readCloudEvent());
+                }
+                return (userContext, reqImpl) -> {
+                    CloudEvent event = reqImpl.readCloudEvent();
+                    runtimeContext.executeWithTracing(event, () -> {
+                        userContext.executeFunction(cloudEventFunction, event);
+                        return null;
+                    });
+                };
+            } else if (function instanceof StreamingOpenFunction) {
+                StreamingOpenFunction streamingFunction = (StreamingOpenFunction) function;
+                return withRequestTracing((userContext, reqImpl) ->
+                        userContext.executeFunction(streamingFunction, reqImpl.getInputStream()));
+            } else if (function instanceof OpenFunction) {
+                OpenFunction openFunction = (OpenFunction) function;
+                return withRequestTracing((userContext, reqImpl) ->
+                        userContext.executeFunction(openFunction, new String(reqImpl.getInputStream().readAllBytes(), reqImpl.getCharset())));
+            } else {
+                throw new Error("Unsupported function " + function.getClass().getName());
+            }
+        }
+
+        /**
+         * Wraps the invoker in the span of the request, if tracing is enabled.
+         */
+        private FunctionInvoker withRequestTracing(FunctionInvoker invoker) {
+            if (!runtimeContext.isTracingEnabled()) {
+                return invoker;
+            }
+
+            return (userContext, reqImpl) -> runtimeContext.executeWithTracing(reqImpl, () -> {
+                invoker.invoke(userContext, reqImpl);
+                return null;
+            });
+        }
+
+        private EnumSet<HttpMethod> resolveMethods(Routable function) {
+            EnumSet<HttpMethod> methods = EnumSet.noneOf(HttpMethod.class);
+            for (String name : function.getMethods()) {
+                HttpMethod method = HttpMethod.fromString(name.toUpperCase(Locale.ROOT));
+                if (method == null) {
+                    logger.log(Level.WARNING, "unknown http method " + name + " of function " + function.getClass().getName() + ", ignored");
+                    continue;
+                }
+                methods.add(method);
+            }
+            return methods;
+        }
+
+        private boolean isAllowed(String name) {
+            if (methods == null) {
+                return true;
+            }
+
+            // Jetty hands out the cached upper case method names, only fall back to converting the odd one.
+            HttpMethod method = HttpMethod.fromString(name);
+            if (method == null) {
+                method = HttpMethod.fromString(name.toUpperCase(Locale.ROOT));
+            }
+            return method != null && methods.contains(method);
+        }
+
+        private boolean isBodyTooLarge(Throwable t) {
+            // The function or the tracing may have wrapped the exception.
+            for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+                if (cause instanceof BodyTooLargeException) {
+                    return true;
+                }
+            }
+            return false;
         }
 
         /**
@@ -112,40 +381,43 @@ public class HttpTrigger extends HttpServlet implements Trigger {
          */
         @Override
         public void service(HttpServletRequest req, HttpServletResponse res) {
-            HttpRequestImpl reqImpl = new HttpRequestImpl(req);
+            activeRequests.increment();
+            long maxBodySize = runtimeContext.getHttpMaxBodySize();
+            HttpRequestImpl reqImpl = new HttpRequestImpl(req, maxBodySize);
             HttpResponseImpl respImpl = new HttpResponseImpl(res);
             try {
-                if (Routable.class.isAssignableFrom(function.getClass())) {
-                    List<String> methods = Arrays.asList((((Routable) function).getMethods()));
-                    if (methods.stream().noneMatch(req.getMethod()::equalsIgnoreCase)) {
-                        respImpl.setStatusCode(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
-                        return;
-                    }
+                // Counted as active before the check, so a request that passes it is waited for when draining.
+                if (!serving) {
+                    res.setHeader("Connection", "close");
+                    respImpl.setStatusCode(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    return;
                 }
 
-                UserContext userContext = new UserContext(runtimeContext, daprClient).
-                        withHttp(reqImpl, respImpl);
-                if (HttpFunction.class.isAssignableFrom(function.getClass())) {
-                    runtimeContext.executeWithTracing(reqImpl, () -> {
-                                userContext.executeFunction(((HttpFunction) function));
-                                return null;
-                            }
-                    );
-                } else if (CloudEventFunction.class.isAssignableFrom(function.getClass())) {
-                    MessageReader messageReader = HttpMessageFactory.createReaderFromMultimap(reqImpl.getHeaders(), reqImpl.getInputStream().readAllBytes());
-                    CloudEvent event = messageReader.toEvent();
-                    runtimeContext.executeWithTracing(event, () -> {
-                        userContext.executeFunction((CloudEventFunction) function, event);
-                        return null;
-                    });
-                } else if (OpenFunction.class.isAssignableFrom(function.getClass())) {
-                    runtimeContext.executeWithTracing(reqImpl, () -> {
-                                userContext.executeFunction((OpenFunction) function, new String(reqImpl.getInputStream().readAllBytes()));
-                                return null;
-                            }
-                    );
+                if (!isAllowed(req.getMethod())) {
+                    respImpl.setStatusCode(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+                    return;
                 }
+
+                // Reject a body that is known to be too large before reading any of it.
+                if (maxBodySize > 0 && req.getContentLengthLong() > maxBodySize) {
+                    respImpl.setStatusCode(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+                    return;
+                }
+
+                UserContext userContext = new UserContext(runtimeContext, daprClient, outputSender).
+                        withHttp(reqImpl, respImpl);
+                invoker.invoke(userContext, reqImpl);
             } catch (Throwable t) {
+                // The function may have written its response before the outputs failed to be delivered,
+                // replace it by the error while it has not been sent.
+                if (!respImpl.reset()) {
+                    logger.log(Level.WARNING, "the response is already committed, the error is not reported to the client");
+                }
+                if (isBodyTooLarge(t)) {
+                    logger.log(Level.WARNING, t.getMessage());
+                    res.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+                    return;
+                }
                 logger.log(Level.SEVERE, "Failed to execute function", t);
                 res.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             } finally {
@@ -160,6 +432,9 @@ public class HttpTrigger extends HttpServlet implements Trigger {
                     }
                 } catch (IOException e) {
                     e.printStackTrace();
+                } finally {
+                    // Only once the response is written, so draining does not stop the server under it.
+                    activeRequests.decrement();
                 }
             }
         }
@@ -0,0 +1,58 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package dev.openfunction.invoker.trigger;
+
+/**
+ * Metrics of the thread pool serving the http trigger.
+ */
+public interface HttpTriggerMXBean {
+    /**
+     * @return whether requests are executed on virtual threads
+     */
+    boolean isVirtualThreads();
+
+    /**
+     * @return the number of requests being executed
+     */
+    long getActiveRequests();
+
+    /**
+     * @return the number of threads in the pool
+     */
+    int getThreads();
+
+    /**
+     * @return the number of threads executing a task
+     */
+    int getBusyThreads();
+
+    /**
+     * @return the number of idle threads
+     */
+    int getIdleThreads();
+
+    /**
+     * @return the maximum number of threads in the pool
+     */
+    int getMaxThreads();
+
+    /**
+     * @return the number of tasks waiting for a thread
+     */
+    int getQueueSize();
+}
@@ -20,7 +20,38 @@ public interface Trigger {
 
     int WaitDaprSidecarTimeout = 60000;
 
-    void start() throws Exception;
-
+    /**
+     * start starts serving and returns once the trigger is ready, it does not wait for the trigger to stop.
+     *
+     * @param sidecar the dapr sidecar shared by the triggers, null if the function does not use dapr
+     * @throws Exception Exception
+     */
+    void start(DaprSidecar sidecar) throws Exception;
+
+    /**
+     * train sends a synthetic request through the started trigger, so that a training run loads the classes
+     * serving a request needs. The functions are called with an empty JSON payload.
+     *
+     * @throws Exception if the request could not be sent, the failures of the functions are ignored
+     */
+    void train() throws Exception;
+
+    /**
+     * drain stops accepting new requests, the requests in flight go on.
+     */
+    void drain();
+
+    /**
+     * awaitDrained waits for the requests in flight to complete.
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @return true if all requests completed, false if the timeout elapsed before
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitDrained(long timeout) throws InterruptedException;
+
+    /**
+     * close stops serving and releases the resources of the trigger, the shared sidecar is closed by the caller.
+     */
     void close();
 }
@@ -0,0 +1,237 @@
+/*
+Copyright 2022 The OpenFunction Authors.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package dev.openfunction.invoker.trigger;
+
+import dev.openfunction.invoker.metrics.StartupProfile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * TriggerManager starts the triggers of a function in parallel, keeps the process alive while they serve,
+ * and stops them together when the JVM shuts down.
+ */
+public final class TriggerManager {
+    private static final Logger logger = Logger.getLogger("dev.openfunction.invoker");
+
+    private final List<Trigger> triggers;
+    private final DaprSidecar sidecar;
+    private final long drainDelay;
+    private final long shutdownTimeout;
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final Thread shutdownHook = new Thread(this::shutdown, "trigger-shutdown");
+
+    // The LogManager resets its handlers from a shutdown hook of its own, at the same time as ours runs.
+    // While shutting down the records are published to this handler, which is attached to no logger.
+    private final Handler shutdownHandler = new ConsoleHandler();
+    private volatile boolean shuttingDown;
+
+    /**
+     * @param triggers the triggers of the function
+     * @param sidecar  the dapr sidecar shared by the triggers, null if the function does not use dapr
+     * @param drainDelay the time in milliseconds the triggers keep serving on shutdown before they drain
+     * @param shutdownTimeout the time in milliseconds to drain the triggers and deliver the outputs on shutdown
+     */
+    public TriggerManager(List<Trigger> triggers, DaprSidecar sidecar, long drainDelay, long shutdownTimeout) {
+        this.triggers = new ArrayList<>(triggers);
+        this.sidecar = sidecar;
+        this.drainDelay = drainDelay;
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * start starts all triggers at the same time and returns once all of them serve. If a trigger fails to
+     * start, the others are stopped. The triggers are drained on shutdown from the moment they start, so a
+     * function stopped while waiting for the sidecar still closes its listeners and outputs.
+     *
+     * @throws Exception the error of the first trigger that failed to start
+     */
+    public void start() throws Exception {
+        if (triggers.isEmpty()) {
+            throw new Error("no trigger defined for the function");
+        }
+
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        AtomicInteger seq = new AtomicInteger();
+        ExecutorService starter = Executors.newFixedThreadPool(triggers.size(), r -> {
+            Thread t = new Thread(r, "trigger-start-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        List<Future<?>> futures = new ArrayList<>(triggers.size());
+        for (Trigger trigger : triggers) {
+            futures.add(starter.submit(() -> {
+                StartupProfile.Phase phase = StartupProfile.begin("start " + trigger.getClass().getSimpleName());
+                trigger.start(sidecar);
+                phase.end();
+                return null;
+            }));
+        }
+
+        Exception failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : new Exception(e.getCause());
+                }
+            }
+        }
+        starter.shutdown();
+
+        if (failure != null) {
+            // Nothing was served, there is nothing to drain.
+            close(false);
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // The JVM is already shutting down.
+            }
+            throw failure;
+        }
+    }
+
+    /**
+     * train sends a synthetic request through each trigger, a trigger failing to send it does not stop the others.
+     */
+    public void train() {
+        for (Trigger trigger : triggers) {
+            try {
+                trigger.train();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "train " + trigger.getClass().getSimpleName() + " error", e);
+            }
+        }
+    }
+
+    /**
+     * await blocks until the triggers are stopped.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * close drains the triggers: they keep serving for the drain delay, as requests are still routed to the
+     * pod until its endpoint is removed. Then they stop accepting requests, answering 503 to the late ones,
+     * and the requests in flight complete. Then the queued outputs are delivered and the triggers and the
+     * sidecar are closed. All of this within the shutdown timeout, what is not done by then is abandoned.
+     */
+    public void close() {
+        close(true);
+    }
+
+    private void shutdown() {
+        shuttingDown = true;
+        close(true);
+    }
+
+    /**
+     * @param drain false to close the triggers right away, without the drain delay and the drain
+     */
+    private void close(boolean drain) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeout);
+        if (drain) {
+            drain(deadline);
+        }
+
+        for (Trigger trigger : triggers) {
+            try {
+                trigger.close();
+            } catch (Exception e) {
+                log(Level.WARNING, "close " + trigger.getClass().getSimpleName() + " error", e);
+            }
+        }
+        if (sidecar != null) {
+            sidecar.close(Math.max(1, remaining(deadline)));
+        }
+
+        log(Level.INFO, "triggers closed", null);
+        stopped.countDown();
+    }
+
+    private void drain(long deadline) {
+        long delay = Math.min(drainDelay, shutdownTimeout);
+        if (delay > 0) {
+            log(Level.INFO, "serving " + delay + "ms more before draining the triggers", null);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        log(Level.INFO, "draining triggers, timeout " + shutdownTimeout + "ms", null);
+        for (Trigger trigger : triggers) {
+            trigger.drain();
+        }
+        for (Trigger trigger : triggers) {
+            try {
+                if (!trigger.awaitDrained(remaining(deadline))) {
+                    log(Level.WARNING, trigger.getClass().getSimpleName() + " still has requests in flight after " + shutdownTimeout + "ms", null);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void log(Level level, String message, Throwable thrown) {
+        if (!shuttingDown) {
+            logger.log(level, message, thrown);
+            return;
+        }
+
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName(logger.getName());
+        record.setSourceClassName(TriggerManager.class.getName());
+        record.setSourceMethodName("close");
+        record.setThrown(thrown);
+        shutdownHandler.publish(record);
+        shutdownHandler.flush();
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+}